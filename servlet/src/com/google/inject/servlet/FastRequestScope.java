@@ -0,0 +1,77 @@
+/**
+ * Copyright (C) 2010 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.inject.servlet;
+
+import com.google.inject.Key;
+import com.google.inject.Provider;
+import com.google.inject.Scope;
+import com.google.inject.servlet.ServletScopes.NullObject;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A request scope whose instances are kept in a {@link RequestSlots} table per request. Each
+ * binding it scopes is assigned the next slot of this scope, so the tables of its requests are as
+ * large as the number of bindings in this scope, whatever other injectors and scopes do.
+ *
+ * @see ServletScopes#newFastRequestScope
+ */
+final class FastRequestScope implements Scope {
+
+  private static final AtomicInteger scopeCount = new AtomicInteger();
+
+  /** The request attribute holding the table of this scope. */
+  private final String attributeName
+      = RequestSlots.class.getName() + "." + scopeCount.incrementAndGet();
+  private final AtomicInteger slotCount = new AtomicInteger();
+
+  public <T> Provider<T> scope(Key<T> key, final Provider<T> creator) {
+    final int slot = slotCount.getAndIncrement();
+    return new Provider<T>() {
+      public T get() {
+        RequestSlots slots = GuiceFilter.getContext().getRequestSlots(FastRequestScope.this);
+        Object obj = slots.get(slot);
+        if (obj == null) {
+          T t = creator.get();
+          obj = slots.putIfAbsent(slot, (t != null) ? t : NullObject.INSTANCE);
+        }
+        if (NullObject.INSTANCE == obj) {
+          return null;
+        }
+        @SuppressWarnings("unchecked")
+        T t = (T) obj;
+        return t;
+      }
+
+      public String toString() {
+        return String.format("%s[%s]", creator, FastRequestScope.this);
+      }
+    };
+  }
+
+  String getAttributeName() {
+    return attributeName;
+  }
+
+  /** Returns the number of slots assigned so far. */
+  int getSlotCount() {
+    return slotCount.get();
+  }
+
+  public String toString() {
+    return "ServletScopes.newFastRequestScope()";
+  }
+}
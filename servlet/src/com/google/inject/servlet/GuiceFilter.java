@@ -153,6 +153,8 @@ public class GuiceFilter implements Filter {
 
     final HttpServletRequest request;
     final HttpServletResponse response;
+    /** The request's instances in the fast request scope last looked up. */
+    RequestSlots requestSlots;
 
     Context(HttpServletRequest request, HttpServletResponse response) {
       this.request = request;
@@ -166,6 +168,26 @@ public class GuiceFilter implements Filter {
     HttpServletResponse getResponse() {
       return response;
     }
+
+    /**
+     * Returns the request's instances in {@code scope}. They are stored in a request attribute so
+     * that requests dispatched through the filter again keep them.
+     */
+    RequestSlots getRequestSlots(FastRequestScope scope) {
+      if (requestSlots == null || requestSlots.getScope() != scope) {
+        // only the first lookup of each scope in each context locks the request
+        String name = scope.getAttributeName();
+        synchronized (request) {
+          RequestSlots slots = (RequestSlots) request.getAttribute(name);
+          if (slots == null) {
+            slots = new RequestSlots(scope);
+            request.setAttribute(name, slots);
+          }
+          requestSlots = slots;
+        }
+      }
+      return requestSlots;
+    }
   }
 
   public void init(FilterConfig filterConfig) throws ServletException {
@@ -0,0 +1,99 @@
+/**
+ * Copyright (C) 2010 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.inject.servlet;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * The instances of one request in a {@link FastRequestScope}. Each binding in that scope is
+ * assigned a slot when it is scoped, and its instance for the request is kept at that index. The
+ * table of a request is kept in a single request attribute per scope.
+ *
+ * <p>Lookups read the slot without locking. When several threads create the instance of a slot
+ * concurrently, the first one stored is kept and returned to all of them. When the table grows, its
+ * empty slots are marked as moved while they are copied, so that threads storing into them retry
+ * on the larger copy rather than store into a table that is being replaced.
+ */
+final class RequestSlots {
+
+  /** Marks the empty slots of a table replaced by a larger copy. */
+  private static final Object MOVED = new Object();
+
+  private final FastRequestScope scope;
+
+  /** Instances by slot, replaced by a larger copy when bindings are scoped during the request. */
+  private volatile AtomicReferenceArray<Object> instances;
+
+  RequestSlots(FastRequestScope scope) {
+    this.scope = scope;
+    this.instances = new AtomicReferenceArray<Object>(scope.getSlotCount());
+  }
+
+  /** Returns the scope whose instances this holds. */
+  FastRequestScope getScope() {
+    return scope;
+  }
+
+  /** Returns the instance in {@code slot}, or null if none was stored. */
+  Object get(int slot) {
+    AtomicReferenceArray<Object> instances = this.instances;
+    Object instance = slot < instances.length() ? instances.get(slot) : null;
+    // a moved slot was empty when it was copied
+    return instance != MOVED ? instance : null;
+  }
+
+  /**
+   * Stores {@code instance} in {@code slot} unless another instance was stored first, and returns
+   * the instance in the slot.
+   */
+  Object putIfAbsent(int slot, Object instance) {
+    while (true) {
+      AtomicReferenceArray<Object> instances = this.instances;
+      if (slot >= instances.length()) {
+        grow(instances, slot);
+        continue;
+      }
+
+      if (instances.compareAndSet(slot, null, instance)) {
+        return instance;
+      }
+      Object existing = instances.get(slot);
+      if (existing != MOVED) {
+        return existing;
+      }
+
+      // the table is being replaced, wait for the copy and retry on it
+      grow(instances, slot);
+    }
+  }
+
+  private synchronized void grow(AtomicReferenceArray<Object> instances, int slot) {
+    if (this.instances != instances) {
+      return;
+    }
+
+    int length = Math.max(slot + 1, Math.max(scope.getSlotCount(), instances.length() * 2));
+    AtomicReferenceArray<Object> grown = new AtomicReferenceArray<Object>(length);
+    for (int i = 0; i < instances.length(); i++) {
+      // stored instances never change, and empty slots can't be filled once moved
+      if (!instances.compareAndSet(i, null, MOVED)) {
+        grown.set(i, instances.get(i));
+      }
+    }
+    this.instances = grown;
+  }
+}
@@ -21,6 +21,7 @@ import static com.google.inject.Asserts.reserialize;
 import com.google.inject.BindingAnnotation;
 import com.google.inject.CreationException;
 import com.google.inject.Guice;
+import com.google.inject.Inject;
 import com.google.inject.Injector;
 import com.google.inject.Key;
 import com.google.inject.internal.Maps;
@@ -38,6 +39,12 @@ import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Method;
 import java.lang.reflect.Proxy;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import javax.servlet.FilterChain;
 import javax.servlet.ServletException;
 import javax.servlet.ServletRequest;
@@ -58,6 +65,8 @@ import static org.easymock.EasyMock.verify;
 public class ServletTest extends TestCase {
   private static final Key<InRequest> IN_REQUEST_KEY = Key.get(InRequest.class);
   private static final Key<InRequest> IN_REQUEST_NULL_KEY = Key.get(InRequest.class, Null.class);
+  private static final Key<InFastRequest> IN_FAST_REQUEST_NULL_KEY
+      = Key.get(InFastRequest.class, Null.class);
   private static final Key<InSession> IN_SESSION_KEY = Key.get(InSession.class);
   private static final Key<InSession> IN_SESSION_NULL_KEY = Key.get(InSession.class, Null.class);
 
@@ -102,6 +111,100 @@ public class ServletTest extends TestCase {
     assertTrue(invoked[0]);
   }
 
+  public void testFastRequestScope() throws CreationException, IOException, ServletException {
+    final FastRequestScope fastRequest = (FastRequestScope) ServletScopes.newFastRequestScope();
+    final Injector injector = Guice.createInjector(new AbstractModule() {
+      @Override
+      protected void configure() {
+        install(new ServletModule());
+        bind(InFastRequest.class).in(fastRequest);
+        bind(IN_FAST_REQUEST_NULL_KEY).toProvider(Providers.<InFastRequest>of(null))
+            .in(fastRequest);
+      }
+    });
+
+    // slots are assigned per scope when the injector is built
+    assertEquals(2, fastRequest.getSlotCount());
+
+    GuiceFilter filter = new GuiceFilter();
+
+    // the instances of the request are kept in a single attribute
+    String attributeName = fastRequest.getAttributeName();
+    final HttpServletRequest request = createMock(HttpServletRequest.class);
+    expect(request.getAttribute(attributeName)).andReturn(null);
+    request.setAttribute(eq(attributeName), isA(RequestSlots.class));
+
+    final InFastRequest[] inFastRequest = new InFastRequest[1];
+    FilterChain filterChain = new FilterChain() {
+      public void doFilter(ServletRequest servletRequest,
+          ServletResponse servletResponse) {
+        inFastRequest[0] = injector.getInstance(InFastRequest.class);
+        assertNotNull(inFastRequest[0]);
+        assertSame(inFastRequest[0], injector.getInstance(InFastRequest.class));
+        assertNull(injector.getInstance(IN_FAST_REQUEST_NULL_KEY));
+        assertNull(injector.getInstance(IN_FAST_REQUEST_NULL_KEY));
+      }
+    };
+
+    replay(request);
+
+    filter.doFilter(request, null, filterChain);
+
+    verify(request);
+    assertNotNull(inFastRequest[0]);
+
+    // another request gets another instance
+    final HttpServletRequest otherRequest = createMock(HttpServletRequest.class);
+    expect(otherRequest.getAttribute(attributeName)).andReturn(null);
+    otherRequest.setAttribute(eq(attributeName), isA(RequestSlots.class));
+    replay(otherRequest);
+
+    filter.doFilter(otherRequest, null, new FilterChain() {
+      public void doFilter(ServletRequest servletRequest, ServletResponse servletResponse) {
+        assertNotSame(inFastRequest[0], injector.getInstance(InFastRequest.class));
+      }
+    });
+
+    verify(otherRequest);
+  }
+
+  public void testRequestSlotsKeepInstancesStoredWhileGrowing() throws Exception {
+    final FastRequestScope scope = (FastRequestScope) ServletScopes.newFastRequestScope();
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      for (int round = 0; round < 20; round++) {
+        // starts empty, so that the table grows repeatedly while threads store into it
+        final RequestSlots slots = new RequestSlots(scope);
+        final Object[] stored = new Object[1000];
+        final CountDownLatch start = new CountDownLatch(1);
+        Future<?>[] futures = new Future<?>[4];
+        for (int t = 0; t < futures.length; t++) {
+          final int first = t;
+          futures[t] = executor.submit(new Callable<Void>() {
+            public Void call() throws InterruptedException {
+              start.await();
+              for (int slot = first; slot < stored.length; slot += 4) {
+                stored[slot] = new Object();
+                assertSame(stored[slot], slots.putIfAbsent(slot, stored[slot]));
+              }
+              return null;
+            }
+          });
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+          future.get(10, TimeUnit.SECONDS);
+        }
+
+        for (int slot = 0; slot < stored.length; slot++) {
+          assertSame(stored[slot], slots.get(slot));
+        }
+      }
+    } finally {
+      executor.shutdown();
+    }
+  }
+
   public void testExistingRequestObject()
       throws CreationException, IOException, ServletException {
     final Injector injector = createInjector();
@@ -151,11 +254,16 @@ public class ServletTest extends TestCase {
     String inSessionKey = IN_SESSION_KEY.toString();
     String inSessionNullKey = IN_SESSION_NULL_KEY.toString();
 
+    // missing attributes are read again while holding the creation lock
+    String creationLock = ServletScopes.class.getName() + ".creationLock";
     expect(request.getSession()).andReturn(session).times(2);
-    expect(session.getAttribute(inSessionKey)).andReturn(null);
+    expect(session.getAttribute(creationLock)).andReturn(null).times(2)
+        .andReturn(new ServletScopes.SessionCreationLock());
+    session.setAttribute(eq(creationLock), isA(ServletScopes.SessionCreationLock.class));
+    expect(session.getAttribute(inSessionKey)).andReturn(null).times(2);
     session.setAttribute(eq(inSessionKey), isA(InSession.class));
 
-    expect(session.getAttribute(inSessionNullKey)).andReturn(null);
+    expect(session.getAttribute(inSessionNullKey)).andReturn(null).times(2);
     session.setAttribute(eq(inSessionNullKey), eq(NullObject.INSTANCE));
 
     final boolean[] invoked = new boolean[1];
@@ -177,6 +285,45 @@ public class ServletTest extends TestCase {
     assertTrue(invoked[0]);
   }
 
+  public void testNestedSessionObjectsCreatedConcurrently() throws Exception {
+    final Injector injector = Guice.createInjector(new ServletModule());
+    final HttpServletRequest request = SessionScopePerformance.newFakeRequest(
+        SessionScopePerformance.newFakeSession());
+
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      final CountDownLatch start = new CountDownLatch(1);
+      Future<OuterInSession> outer = executor.submit(new Callable<OuterInSession>() {
+        public OuterInSession call() throws Exception {
+          return getInSession(injector, request, start, OuterInSession.class);
+        }
+      });
+      Future<InnerInSession> inner = executor.submit(new Callable<InnerInSession>() {
+        public InnerInSession call() throws Exception {
+          return getInSession(injector, request, start, InnerInSession.class);
+        }
+      });
+      start.countDown();
+
+      OuterInSession outerInSession = outer.get(10, TimeUnit.SECONDS);
+      InnerInSession innerInSession = inner.get(10, TimeUnit.SECONDS);
+      assertSame(innerInSession, outerInSession.inner);
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  private static <T> T getInSession(Injector injector, HttpServletRequest request,
+      CountDownLatch start, Class<T> type) throws InterruptedException {
+    GuiceFilter.localContext.set(new GuiceFilter.Context(request, null));
+    try {
+      start.await();
+      return injector.getInstance(type);
+    } finally {
+      GuiceFilter.localContext.remove();
+    }
+  }
+
   public void testExistingSessionObject()
       throws CreationException, IOException, ServletException {
     final Injector injector = createInjector();
@@ -297,9 +444,24 @@ public class ServletTest extends TestCase {
   @SessionScoped
   static class InSession implements Serializable {}
 
+  @SessionScoped
+  static class OuterInSession {
+    @Inject InnerInSession inner;
+  }
+
+  /** Slow to create, so that both threads of a test look it up while it's created. */
+  @SessionScoped
+  static class InnerInSession {
+    @Inject InnerInSession() throws InterruptedException {
+      Thread.sleep(20);
+    }
+  }
+
   @RequestScoped
   static class InRequest {}
 
+  static class InFastRequest {}
+
   @BindingAnnotation @Retention(RUNTIME) @Target({PARAMETER, METHOD, FIELD})
   @interface Null {}
 }
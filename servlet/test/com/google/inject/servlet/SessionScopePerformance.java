@@ -0,0 +1,173 @@
+/**
+ * Copyright (C) 2010 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.inject.servlet;
+
+import static com.google.inject.name.Names.named;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.text.DecimalFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpSession;
+
+import com.google.inject.AbstractModule;
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import com.google.inject.Key;
+import com.google.inject.Provider;
+import com.google.inject.Scope;
+import com.google.inject.internal.Lists;
+import com.google.inject.servlet.ServletScopes.NullObject;
+
+/**
+ * Microbenchmarks for {@link ServletScopes#SESSION}, against a session scope which locks the
+ * session for each lookup as it used to. Run with {@code main}.
+ */
+public class SessionScopePerformance {
+
+  static final DecimalFormat format = new DecimalFormat();
+
+  /** The session scope as it was before lookups stopped locking the session. */
+  static final Scope SYNCHRONIZED_SESSION = new Scope() {
+    public <T> Provider<T> scope(Key<T> key, final Provider<T> creator) {
+      final String name = key.toString();
+      return new Provider<T>() {
+        public T get() {
+          HttpSession session = GuiceFilter.getRequest().getSession();
+          synchronized (session) {
+            Object obj = session.getAttribute(name);
+            if (NullObject.INSTANCE == obj) {
+              return null;
+            }
+            @SuppressWarnings("unchecked")
+            T t = (T) obj;
+            if (t == null) {
+              t = creator.get();
+              session.setAttribute(name, (t != null) ? t : NullObject.INSTANCE);
+            }
+            return t;
+          }
+        }
+      };
+    }
+  };
+
+  public static void main(String[] args) throws Exception {
+    System.err.println("Looking up instances which already exist in one session:");
+    for (int i = 0; i < 5; i++) {
+      for (int threads : new int[] { 1, 2, 4, 8 }) {
+        lookupThroughput("synchronized", SYNCHRONIZED_SESSION, threads);
+        lookupThroughput("lock-free", ServletScopes.SESSION, threads);
+      }
+      System.err.println();
+    }
+  }
+
+  /**
+   * Measures how many lookups of instances already in a session {@code threads} concurrent
+   * requests of that session can perform with {@code scope}.
+   */
+  static void lookupThroughput(String name, final Scope scope, int threads)
+      throws InterruptedException {
+    final List<Key<Object>> keys = Lists.newArrayList();
+    for (int i = 0; i < 10; i++) {
+      keys.add(Key.get(Object.class, named("key" + i)));
+    }
+    final Injector injector = Guice.createInjector(new AbstractModule() {
+      @Override
+      protected void configure() {
+        for (Key<Object> key : keys) {
+          bind(key).toProvider(new Provider<Object>() {
+            public Object get() {
+              return new Object();
+            }
+          }).in(scope);
+        }
+      }
+    });
+
+    final HttpServletRequest request = newFakeRequest(newFakeSession());
+    final int count = 200000;
+    final CountDownLatch start = new CountDownLatch(1);
+    final CountDownLatch done = new CountDownLatch(threads);
+    for (int t = 0; t < threads; t++) {
+      new Thread() {
+        @Override public void run() {
+          GuiceFilter.localContext.set(new GuiceFilter.Context(request, null));
+          try {
+            start.await();
+            for (int i = 0; i < count; i++) {
+              injector.getInstance(keys.get(i % keys.size()));
+            }
+          } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+          } finally {
+            GuiceFilter.localContext.remove();
+            done.countDown();
+          }
+        }
+      }.start();
+    }
+
+    long time = System.nanoTime();
+    start.countDown();
+    done.await();
+    time = System.nanoTime() - time;
+
+    long lookupsPerSecond = (long) count * threads * 1000000000L / time;
+    System.err.println(name + ", " + threads + " threads: " + format.format(lookupsPerSecond)
+        + " lookups/s");
+  }
+
+  /** Returns a fake request of {@code session}. */
+  static HttpServletRequest newFakeRequest(final HttpSession session) {
+    return (HttpServletRequest) Proxy.newProxyInstance(HttpServletRequest.class.getClassLoader(),
+        new Class[] { HttpServletRequest.class }, new InvocationHandler() {
+          public Object invoke(Object proxy, Method method, Object[] args) {
+            if (method.getName().equals("getSession")) {
+              return session;
+            }
+            throw new UnsupportedOperationException(method.getName());
+          }
+        });
+  }
+
+  /** Returns a fake session which stores attributes in a concurrent map, as containers do. */
+  static HttpSession newFakeSession() {
+    final Map<String, Object> attributes = new ConcurrentHashMap<String, Object>();
+    return (HttpSession) Proxy.newProxyInstance(HttpSession.class.getClassLoader(),
+        new Class[] { HttpSession.class }, new InvocationHandler() {
+          public Object invoke(Object proxy, Method method, Object[] args) {
+            String name = method.getName();
+            if (name.equals("getAttribute")) {
+              return attributes.get(args[0]);
+            } else if (name.equals("setAttribute")) {
+              attributes.put((String) args[0], args[1]);
+              return null;
+            } else if (name.equals("hashCode")) {
+              return System.identityHashCode(proxy);
+            }
+            throw new UnsupportedOperationException(name);
+          }
+        });
+  }
+}
@@ -29,6 +29,7 @@ import com.google.inject.binder.LinkedBindingBuilder;
 import com.google.inject.binder.LinkedJitBindingBuilder;
 import com.google.inject.binder.SimplifiedScopedBindingBuilder;
 import com.google.inject.matcher.Matcher;
+import com.google.inject.spi.JitProviderListener;
 import com.google.inject.spi.Message;
 import com.google.inject.spi.TypeConverter;
 import com.google.inject.spi.TypeListener;
@@ -256,6 +257,14 @@ public abstract class AbstractModule implements Module {
     binder.bindListener(typeMatcher, listener);
   }
 
+  /**
+   * @see Binder#bindListener(JitProviderListener)
+   * @since 3.0?
+   */
+  protected void bindListener(JitProviderListener listener) {
+    binder.bindListener(listener);
+  }
+
   /**
    * @see Binder#bindJit(TypeLiteral)
    * @since 3.0?
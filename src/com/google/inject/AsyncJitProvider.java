@@ -0,0 +1,48 @@
+/**
+ * Copyright (C) 2010 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.inject;
+
+import java.util.concurrent.Future;
+
+/**
+ * A {@link JitProvider} which can also provide instances asynchronously, for example when they are
+ * loaded from a slow store. Injecting a {@code Future<T>} whose key has the same annotation as a
+ * key {@code T} provided by this provider calls {@link #getAsync} rather than {@link #get}, so
+ * that a constructor or a method can start several resolutions at once and join them when it
+ * needs the instances. Other dependencies are still provided with {@link #get}.
+ *
+ * <p>Futures for keys provided by other just-in-time providers are also injectable. Their instance
+ * is then provided synchronously, like injecting {@code T} would, before the future is injected.
+ *
+ * <p>Only unscoped instances are provided asynchronously, since a scope holds the instance itself.
+ * Injecting the future of a key of a scoped registration of this provider fails; inject the key
+ * itself instead.
+ *
+ * @since 3.0?
+ */
+public interface AsyncJitProvider<T> extends JitProvider<T> {
+
+  /**
+   * Starts providing an instance of {@code T} and returns its future without waiting for it. May
+   * not return {@code null}, and the future may not complete with {@code null}.
+   *
+   * @throws OutOfScopeException when an attempt is made to access a scoped object while the scope
+   *     in question is not currently active
+   */
+  Future<? extends T> getAsync(Key<T> key);
+
+}
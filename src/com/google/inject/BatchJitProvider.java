@@ -0,0 +1,42 @@
+/**
+ * Copyright (C) 2010 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.inject;
+
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * A {@link JitProvider} which can also provide instances for several keys in a single call, for
+ * example to fetch them from a remote store in one round trip. When a constructor or an injectable
+ * method has several unscoped dependencies provided by the same batch just-in-time provider, the
+ * injector provides them with a single call to {@link #getAll}. Other dependencies are still
+ * provided one at a time with {@link #get}.
+ *
+ * @since 3.0?
+ */
+public interface BatchJitProvider<T> extends JitProvider<T> {
+
+  /**
+   * Provides an instance of {@code T} for each of {@code keys}. The returned map must contain a
+   * non-null instance for every key.
+   *
+   * @throws OutOfScopeException when an attempt is made to access a scoped object while the scope
+   *     in question is not currently active
+   */
+  Map<Key<T>, T> getAll(Collection<Key<T>> keys);
+
+}
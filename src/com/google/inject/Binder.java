@@ -26,6 +26,7 @@ import com.google.inject.binder.LinkedBindingBuilder;
 import com.google.inject.binder.LinkedJitBindingBuilder;
 import com.google.inject.binder.SimplifiedScopedBindingBuilder;
 import com.google.inject.matcher.Matcher;
+import com.google.inject.spi.JitProviderListener;
 import com.google.inject.spi.Message;
 import com.google.inject.spi.TypeConverter;
 import com.google.inject.spi.TypeListener;
@@ -376,6 +377,15 @@ public interface Binder {
   void bindListener(Matcher<? super TypeLiteral<?>> typeMatcher,
       TypeListener listener);
 
+  /**
+   * Registers a listener for just-in-time providers. Guice will notify the listener when it looks
+   * up just-in-time provider registrations and when just-in-time providers provide instances.
+   *
+   * @param listener for the just-in-time providers of this injector and of its children
+   * @since 3.0?
+   */
+  void bindListener(JitProviderListener listener);
+
   /**
    * Binds a just-in-time provider. The injector will use the given just-in-time
    * provider to dynamically instantiate objects.
@@ -0,0 +1,37 @@
+/**
+ * Copyright (C) 2010 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.inject;
+
+/**
+ * A {@link JitProvider} whose instances only depend on part of their key, for example on the
+ * annotation but not on a type argument. Keys with the same canonical key are provided the
+ * instance of their canonical key, so that a scoped registration creates a single instance per
+ * canonical key rather than one per key.
+ *
+ * <p>Each key is canonicalized the first time its binding provides an instance.
+ *
+ * @since 3.0?
+ */
+public interface CanonicalizingJitProvider<T> extends JitProvider<T> {
+
+  /**
+   * Returns the key whose instance is provided for {@code key}, which may be {@code key} itself.
+   * The canonical key must be provided by the same registration, and be its own canonical key.
+   */
+  Key<? extends T> canonicalize(Key<T> key);
+
+}
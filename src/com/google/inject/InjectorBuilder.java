@@ -1,7 +1,12 @@
 package com.google.inject;
 
+import static com.google.inject.internal.Preconditions.checkArgument;
+import static com.google.inject.internal.Preconditions.checkNotNull;
+
 import java.lang.reflect.Proxy;
 import java.util.Arrays;
+import java.util.Comparator;
+import java.util.concurrent.Executor;
 
 import com.google.inject.internal.InternalInjectorCreator;
 
@@ -46,6 +51,14 @@ public class InjectorBuilder {
   private Stage stage = Stage.DEVELOPMENT;
   private boolean jitDisabled = false;
   private boolean allowCircularProxy = true;
+  private int maximumJitProviderBindings = Integer.MAX_VALUE;
+  private boolean warmUpJitBindings = false;
+  private boolean cacheJitProviders = true;
+  private boolean generateInjectors = false;
+  private boolean useMethodHandles = false;
+  private Executor preloadExecutor = null;
+  private Executor warmUpExecutor = null;
+  private Comparator<? super Key<?>> warmUpOrder = null;
   
   /**
    * Sets the stage for the injector. If the stage is {@link Stage#PRODUCTION}, 
@@ -83,6 +96,118 @@ public class InjectorBuilder {
     return this;
   }
 
+  /**
+   * Limits the number of unscoped bindings created by {@link JitProvider just-in-time providers}
+   * that each injector keeps. Past this size the oldest ones are forgotten, and created again if
+   * they are needed again. Scoped bindings are always kept, so that scoped instances keep their
+   * identity.
+   * 
+   * By default, all bindings are kept.
+   */
+  public InjectorBuilder maximumJitProviderBindings(int maximumSize) {
+    checkArgument(maximumSize >= 0, "maximumSize must not be negative");
+    this.maximumJitProviderBindings = maximumSize;
+    return this;
+  }
+
+  /**
+   * In {@link Stage#PRODUCTION}, creates the just-in-time bindings reachable from the bindings
+   * of the injector when the injector is built, including those created by
+   * {@link JitProvider just-in-time providers}, rather than on first use. Their just-in-time
+   * providers are obtained and singletons among them are loaded eagerly, so that the first requests
+   * don't pay for it.
+   * 
+   * By default, just-in-time bindings are created on first use.
+   */
+  public InjectorBuilder warmUpJitBindings() {
+    this.warmUpJitBindings = true;
+    return this;
+  }
+
+  /**
+   * Obtains a new {@link JitProvider just-in-time provider} for each key it provides, rather than
+   * one for all of them. Each key then gets its own instance of just-in-time providers bound by
+   * type and unscoped, and just-in-time providers bound to an instance get their members injected
+   * again.
+   * 
+   * By default, each just-in-time provider binding obtains its just-in-time provider once.
+   */
+  public InjectorBuilder disableJitProviderCaching() {
+    this.cacheJitProviders = false;
+    return this;
+  }
+
+  /**
+   * Generates a class for each constructed type that calls its constructor, sets its fields and
+   * invokes its methods directly, rather than through reflection and arrays of arguments. This
+   * makes each instance cheaper to create, at the cost of generating and loading a class per type.
+   * Private members, and types with method interceptors, are still injected reflectively.
+   * 
+   * By default, no injectors are generated.
+   */
+  public InjectorBuilder generateInjectors() {
+    this.generateInjectors = true;
+    return this;
+  }
+
+  /**
+   * {@link #generateInjectors Generates injectors} that invoke constructors, methods and field
+   * setters through {@code java.lang.invoke} method handles when they can't access them directly,
+   * including private ones, rather than through reflection. Method handles are only used by
+   * generated injectors, so this option also turns on {@link #generateInjectors}. No fast classes
+   * are generated for the members that generated injectors invoke; members they don't invoke, such
+   * as those of types with method interceptors, are invoked as if this option weren't set. Method
+   * handles require Java 7 or later; on older VMs, members are invoked as if this option weren't
+   * set.
+   * 
+   * By default, method handles are not used.
+   */
+  public InjectorBuilder useMethodHandles() {
+    this.generateInjectors = true;
+    this.useMethodHandles = true;
+    return this;
+  }
+
+  /**
+   * Loads eager singletons, or all singletons in {@link Stage#PRODUCTION}, in parallel on {@code
+   * executor} when the injector is built. A singleton is loaded once the singletons it depends on
+   * are loaded, so singletons that don't depend on each other are loaded concurrently. Singletons
+   * that depend on each other in a cycle are loaded afterwards on the building thread. The
+   * injector is built once all singletons are loaded, and their failures are reported together.
+   * 
+   * By default, singletons are loaded one at a time on the building thread.
+   */
+  public InjectorBuilder preloadSingletonsInParallel(Executor executor) {
+    this.preloadExecutor = checkNotNull(executor, "executor");
+    return this;
+  }
+
+  /**
+   * Builds the injector without loading eager singletons, or all singletons in {@link
+   * Stage#PRODUCTION}, and warms them up in the background on {@code executor} instead. A request
+   * for a singleton that isn't loaded yet loads it, or waits for that singleton only. Failures to
+   * load singletons are logged, and reported again if they are requested. This overrides {@link
+   * #preloadSingletonsInParallel}.
+   * 
+   * By default, singletons are loaded before the injector is built.
+   */
+  public InjectorBuilder warmUpSingletonsInBackground(Executor executor) {
+    this.warmUpExecutor = checkNotNull(executor, "executor");
+    this.warmUpOrder = null;
+    return this;
+  }
+
+  /**
+   * Like {@link #warmUpSingletonsInBackground(Executor)}, but submits singletons to {@code
+   * executor} in {@code order}, such as by how often their keys were requested in a previous run.
+   */
+  public InjectorBuilder warmUpSingletonsInBackground(Executor executor,
+      Comparator<? super Key<?>> order) {
+    this.warmUpExecutor = checkNotNull(executor, "executor");
+    this.warmUpOrder = checkNotNull(order, "order");
+    return this;
+  }
+
   /** Adds more modules that will be used when the Injector is created. */
   public InjectorBuilder addModules(Iterable<? extends Module> modules) {
     creator.addModules(modules);
@@ -97,7 +222,10 @@ public class InjectorBuilder {
 
   /** Builds the injector. */
   public Injector build() {
-    creator.injectorOptions(new InternalInjectorCreator.InjectorOptions(stage, jitDisabled, allowCircularProxy));
+    creator.injectorOptions(new InternalInjectorCreator.InjectorOptions(
+        stage, jitDisabled, allowCircularProxy, maximumJitProviderBindings, warmUpJitBindings,
+        cacheJitProviders, generateInjectors, useMethodHandles, preloadExecutor, warmUpExecutor,
+        warmUpOrder));
     return creator.build();
   }
 
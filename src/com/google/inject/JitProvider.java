@@ -19,6 +19,11 @@ package com.google.inject;
 /**
  * An object capable of dynamically providing an instance for a specified {@link Key}.
  *
+ * <p>A just-in-time provider bound by type is constructed and injected the first time one of its
+ * bindings provides an instance, not when the injector or the binding is created. If that fails,
+ * the failure is reported by a {@link ProvisionException} from that provision, and obtaining the
+ * provider is attempted again by the next one.
+ *
  * @author pascal@kaching.com (Pascal-Louis Perez)
  * @since 3.0?
  */
@@ -19,7 +19,7 @@ package com.google.inject;
 import java.lang.annotation.Annotation;
 
 import com.google.inject.internal.CircularDependencyProxy;
-import com.google.inject.internal.InternalInjectorCreator;
+import com.google.inject.internal.CycleDetectingLock;
 import com.google.inject.internal.LinkedBindingImpl;
 import com.google.inject.spi.BindingScopingVisitor;
 
@@ -47,19 +47,29 @@ public class Scopes {
          */
         private volatile Object instance;
 
+        /** Guards the creation of this singleton only. */
+        private final CycleDetectingLock lock = new CycleDetectingLock();
+
         // DCL on a volatile is safe as of Java 5, which we obviously require.
         @SuppressWarnings("DoubleCheckedLocking")
         public T get() {
           if (instance == null) {
             /*
-             * Use a pretty coarse lock. We don't want to run into deadlocks
-             * when two threads try to load circularly-dependent objects.
-             * Maybe one of these days we will identify independent graphs of
-             * objects and offer to load them in parallel.
+             * Lock this singleton only, so that unrelated singletons, in this
+             * injector or others, are created in parallel. When two threads
+             * try to load circularly-dependent objects, the thread closing the
+             * cycle fails rather than deadlock or create the singleton its
+             * owner is still creating.
              *
              * This block is re-entrant for circular dependencies.
              */
-            synchronized (InternalInjectorCreator.class) {
+            if (!lock.lock()) {
+              throw new ProvisionException(String.format("Cannot create singleton %s because "
+                  + "%s is creating it while waiting for a singleton this thread is creating. "
+                  + "Singletons that depend on each other can't be created concurrently from "
+                  + "different threads.", key, lock.getOwner()));
+            }
+            try {
               if (instance == null) {
                 T provided = creator.get();
 
@@ -76,6 +86,8 @@ public class Scopes {
 
                 instance = providedOrSentinel;
               }
+            } finally {
+              lock.unlock();
             }
           }
 
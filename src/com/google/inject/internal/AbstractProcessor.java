@@ -31,6 +31,7 @@ import com.google.inject.spi.ProviderLookup;
 import com.google.inject.spi.ScopeBinding;
 import com.google.inject.spi.StaticInjectionRequest;
 import com.google.inject.spi.TypeConverterBinding;
+import com.google.inject.spi.JitProviderListenerBinding;
 import com.google.inject.spi.TypeListenerBinding;
 
 /**
@@ -125,4 +126,8 @@ abstract class AbstractProcessor implements ElementVisitor<Boolean> {
   public Boolean visit(TypeListenerBinding binding) {
     return false;
   }
+
+  public Boolean visit(JitProviderListenerBinding binding) {
+    return false;
+  }
 }
@@ -0,0 +1,180 @@
+/**
+ * Copyright (C) 2010 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.inject.internal;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import com.google.inject.AsyncJitProvider;
+import com.google.inject.JitBinding;
+import com.google.inject.JitProvider;
+import com.google.inject.Key;
+import com.google.inject.Provider;
+import com.google.inject.ProvisionException;
+import com.google.inject.spi.Dependency;
+
+/**
+ * Provides futures of the instances of a key provided by a just-in-time provider. Asynchronous
+ * just-in-time providers start providing the instance. The instance of other providers is provided
+ * immediately by the binding of its key, so that it is shared with that binding's scope.
+ */
+final class AsyncJitProviderFactory<T> implements InternalFactory<Future<T>>, Provider<Future<T>> {
+
+  private final Key<T> key;
+  private final JitBinding<?> jitBinding;
+  private final JitProviderReference<? extends T> jitProvider;
+  private final BindingImpl<T> binding;
+  private final Object source;
+  private final JitProviderListeners listeners;
+
+  AsyncJitProviderFactory(Key<T> key, JitBinding<?> jitBinding,
+      JitProviderReference<? extends T> jitProvider, BindingImpl<T> binding, Object source,
+      JitProviderListeners listeners) {
+    this.key = key;
+    this.jitBinding = jitBinding;
+    this.jitProvider = jitProvider;
+    this.binding = binding;
+    this.source = source;
+    this.listeners = listeners;
+  }
+
+  public Future<T> get() {
+    JitProvider<? extends T> provider = jitProvider.get();
+    if (provider instanceof AsyncJitProvider<?>) {
+      return getAsync(provider);
+    }
+    return completed(binding.getProvider().get());
+  }
+
+  /**
+   * Provides the future. Listeners are notified of the time spent getting the future, which is the
+   * time spent on the requesting thread.
+   */
+  public Future<T> get(Errors errors, InternalContext context, Dependency<?> dependency,
+      boolean linked) throws ErrorsException {
+    if (listeners.isEmpty()) {
+      return provide(errors, context, dependency);
+    }
+
+    long start = System.nanoTime();
+    Future<T> future;
+    try {
+      future = provide(errors, context, dependency);
+    } catch (ErrorsException e) {
+      listeners.onProvision(errors, key, jitBinding, System.nanoTime() - start, true);
+      throw e;
+    }
+    listeners.onProvision(errors, key, jitBinding, System.nanoTime() - start, false);
+    return future;
+  }
+
+  private Future<T> provide(Errors errors, InternalContext context, Dependency<?> dependency)
+      throws ErrorsException {
+    Future<T> future;
+    try {
+      JitProvider<? extends T> provider = jitProvider.get();
+      if (!(provider instanceof AsyncJitProvider<?>)) {
+        return completed(binding.getInternalFactory().get(errors, context, dependency, true));
+      }
+      future = getAsync(provider);
+    } catch (RuntimeException userException) {
+      throw errors.withSource(source).errorInProvider(userException).toException();
+    }
+    return errors.checkForNull(future, source, dependency);
+  }
+
+  /**
+   * Starts providing the instance. Scoped instances are only provided synchronously, since the
+   * scope holds the instance rather than its future.
+   */
+  @SuppressWarnings("unchecked") // the provider can provide this key, see canProvide()
+  private Future<T> getAsync(JitProvider<? extends T> provider) {
+    if (!binding.getScoping().isNoScope()) {
+      throw new ProvisionException(
+          new Errors().withSource(source).scopedAsyncJitProvider(key).getMessages());
+    }
+    Future<T> future = (Future<T>) ((AsyncJitProvider) provider).getAsync(key);
+    return future != null ? new NonNullFuture<T>(future, key, source) : null;
+  }
+
+  private static <T> Future<T> completed(final T instance) {
+    FutureTask<T> future = new FutureTask<T>(new Callable<T>() {
+      public T call() {
+        return instance;
+      }
+    });
+    future.run();
+    return future;
+  }
+
+  @Override public String toString() {
+    return new ToStringBuilder(AsyncJitProviderFactory.class)
+        .add("key", key)
+        .add("jitProvider", jitProvider)
+        .toString();
+  }
+
+  /** Fails futures completing with null, which asynchronous just-in-time providers may not do. */
+  private static final class NonNullFuture<T> implements Future<T> {
+    private final Future<T> delegate;
+    private final Key<T> key;
+    private final Object source;
+
+    NonNullFuture(Future<T> delegate, Key<T> key, Object source) {
+      this.delegate = delegate;
+      this.key = key;
+      this.source = source;
+    }
+
+    public boolean cancel(boolean mayInterruptIfRunning) {
+      return delegate.cancel(mayInterruptIfRunning);
+    }
+
+    public boolean isCancelled() {
+      return delegate.isCancelled();
+    }
+
+    public boolean isDone() {
+      return delegate.isDone();
+    }
+
+    public T get() throws InterruptedException, ExecutionException {
+      return checkForNull(delegate.get());
+    }
+
+    public T get(long timeout, TimeUnit unit)
+        throws InterruptedException, ExecutionException, TimeoutException {
+      return checkForNull(delegate.get(timeout, unit));
+    }
+
+    private T checkForNull(T instance) throws ExecutionException {
+      if (instance == null) {
+        throw new ExecutionException(new ProvisionException(
+            new Errors().withSource(source).futureCompletedWithNull(key).getMessages()));
+      }
+      return instance;
+    }
+
+    @Override public String toString() {
+      return delegate.toString();
+    }
+  }
+}
@@ -50,13 +50,22 @@ final class BoundProviderFactory<T> implements InternalFactory<T>, CreationListe
 
   public T get(Errors errors, InternalContext context, Dependency<?> dependency, boolean linked)
       throws ErrorsException {
-    errors = errors.withSource(providerKey);
-    javax.inject.Provider<? extends T> provider = providerFactory.get(errors, context, dependency, true);
+    int numErrorsBefore = errors.size();
+    javax.inject.Provider<? extends T> provider;
     try {
-      return errors.checkForNull(provider.get(), source, dependency);
+      provider = providerFactory.get(errors, context, dependency, true);
+    } catch (ErrorsException e) {
+      throw errors.merge(e.getErrors()).toException();
+    } finally {
+      errors.addSourceToNewMessages(numErrorsBefore, providerKey);
+    }
+    T t;
+    try {
+      t = provider.get();
     } catch(RuntimeException userException) {
-      throw errors.errorInProvider(userException).toException();
+      throw errors.withSource(providerKey).errorInProvider(userException).toException();
     }
+    return t != null ? t : errors.withSource(providerKey).checkForNull(t, source, dependency);
   }
 
   @Override public String toString() {
@@ -55,7 +55,7 @@ final class ConstructorBindingImpl<T> extends BindingImpl<T> implements Construc
         = new DefaultConstructionProxyFactory<T>(constructorInjectionPoint).create();
     this.constructorInjectionPoint = constructorInjectionPoint;
     factory.constructorInjector = new ConstructorInjector<T>(
-        injectionPoints, constructionProxy, null, null);
+        injectionPoints, constructionProxy, null, null, null);
   }
 
   /**
@@ -30,17 +30,25 @@ final class ConstructorInjector<T> {
 
   private final ImmutableSet<InjectionPoint> injectableMembers;
   private final SingleParameterInjector<?>[] parameterInjectors;
+  private final int[][] parameterBatches;
   private final ConstructionProxy<T> constructionProxy;
   private final MembersInjectorImpl<T> membersInjector;
+  /**
+   * Gets the parameters and calls the constructor instead of the construction proxy if non-null.
+   */
+  private final GeneratedInjector generatedInjector;
 
   ConstructorInjector(Set<InjectionPoint> injectableMembers,
       ConstructionProxy<T> constructionProxy,
       SingleParameterInjector<?>[] parameterInjectors,
-      MembersInjectorImpl<T> membersInjector) {
+      MembersInjectorImpl<T> membersInjector,
+      GeneratedInjector generatedInjector) {
     this.injectableMembers = ImmutableSet.copyOf(injectableMembers);
     this.constructionProxy = constructionProxy;
     this.parameterInjectors = parameterInjectors;
+    this.parameterBatches = JitProviderFactory.findBatches(parameterInjectors);
     this.membersInjector = membersInjector;
+    this.generatedInjector = generatedInjector;
   }
 
   public ImmutableSet<InjectionPoint> getInjectableMembers() {
@@ -80,8 +88,18 @@ final class ConstructorInjector<T> {
       // First time through...
       constructionContext.startConstruction();
       try {
-        Object[] parameters = SingleParameterInjector.getAll(errors, context, parameterInjectors);
-        t = constructionProxy.newInstance(parameters);
+        if (generatedInjector != null) {
+          @SuppressWarnings("unchecked") // the generated injector calls a constructor of T
+          T constructed = (T) generatedInjector.newInstance(errors, context);
+          if (constructed == null) {
+            throw errors.toException();
+          }
+          t = constructed;
+        } else {
+          Object[] parameters = SingleParameterInjector.getAll(
+              errors, context, parameterInjectors, parameterBatches);
+          t = constructionProxy.newInstance(parameters);
+        }
         constructionContext.setProxyDelegates(t);
       } finally {
         constructionContext.finishConstruction();
@@ -102,6 +120,7 @@ final class ConstructorInjector<T> {
           .errorInjectingConstructor(cause).toException();
     } finally {
       constructionContext.removeCurrentReference();
+      context.endConstruction(this);
     }
   }
 }
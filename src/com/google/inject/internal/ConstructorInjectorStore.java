@@ -72,12 +72,17 @@ final class ConstructorInjectorStore {
     MembersInjectorImpl<T> membersInjector = (MembersInjectorImpl<T>) injector.membersInjectorStore
         .get(injectionPoint.getDeclaringType(), errors);
 
+    // Generated injectors may call the constructor, in which case no fast class is needed for it.
+    // Only generate one once we know they don't.
+    boolean deferFastClass = injector.options.generateInjectors;
+
     /*if[AOP]*/
     ImmutableList<MethodAspect> injectorAspects = injector.state.getMethodAspects();
     ImmutableList<MethodAspect> methodAspects = membersInjector.getAddedAspects().isEmpty()
         ? injectorAspects
         : ImmutableList.copyOf(concat(injectorAspects, membersInjector.getAddedAspects()));
-    ConstructionProxyFactory<T> factory = new ProxyFactory<T>(injectionPoint, methodAspects);
+    ConstructionProxyFactory<T> factory = new ProxyFactory<T>(injectionPoint, methodAspects,
+        !deferFastClass);
     /*end[AOP]*/
     /*if[NO_AOP]
     ConstructionProxyFactory<T> factory = new DefaultConstructionProxyFactory<T>(injectionPoint);
@@ -85,7 +90,27 @@ final class ConstructorInjectorStore {
 
     errors.throwIfNewErrors(numErrorsBefore);
 
-    return new ConstructorInjector<T>(membersInjector.getInjectionPoints(), factory.create(),
-        constructorParameterInjectors, membersInjector);
+    ConstructionProxy<T> constructionProxy = factory.create();
+    GeneratedInjector generatedInjector = null;
+    /*if[AOP]*/
+    boolean intercepted = !constructionProxy.getMethodInterceptors().isEmpty();
+    if (injector.options.generateInjectors && !intercepted) {
+      generatedInjector = InjectorGenerator.generate(
+          injectionPoint, constructorParameterInjectors, membersInjector.getMemberInjectors(),
+          injector.options.useMethodHandles);
+    }
+    if (deferFastClass && !intercepted
+        && (generatedInjector == null || !generatedInjector.constructs())) {
+      constructionProxy = new DefaultConstructionProxyFactory<T>(injectionPoint).create();
+    }
+    /*end[AOP]*/
+    if (generatedInjector == null) {
+      return new ConstructorInjector<T>(membersInjector.getInjectionPoints(), constructionProxy,
+          constructorParameterInjectors, membersInjector, null);
+    }
+
+    return new ConstructorInjector<T>(membersInjector.getInjectionPoints(), constructionProxy,
+        constructorParameterInjectors, membersInjector.withGeneratedInjector(generatedInjector),
+        generatedInjector.constructs() ? generatedInjector : null);
   }
 }
@@ -0,0 +1,124 @@
+/**
+ * Copyright (C) 2010 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.inject.internal;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A re-entrant lock that never deadlocks. Before a thread blocks on a lock held by another thread,
+ * it follows the chain of owners and the locks they are waiting for. If the chain leads back to the
+ * current thread, the locks are held in a cycle: the owner can't proceed until the current thread
+ * releases its locks. The current thread then doesn't wait, and the caller decides how to proceed
+ * without the lock.
+ *
+ * <p>Threads record the lock they're waiting for and follow the chain while holding a monitor
+ * shared by all these locks, so of the threads closing a cycle, exactly one of them sees it.
+ */
+public final class CycleDetectingLock {
+
+  /** The lock that each blocked thread is waiting for. Guarded by itself. */
+  private static final Map<Thread, CycleDetectingLock> lockThreadIsWaitingFor = Maps.newHashMap();
+
+  private final ReentrantLock lock = new ReentrantLock();
+  /** The thread holding the lock, or null. */
+  private volatile Thread owner;
+
+  /**
+   * Acquires this lock, waiting for another thread to release it unless that thread is, directly
+   * or not, waiting for the current thread.
+   *
+   * @return true if the lock was acquired, and must be released with {@link #unlock}. False if it
+   *     wasn't, because waiting would have closed a cycle.
+   */
+  public boolean lock() {
+    if (tryLock()) {
+      return true;
+    }
+
+    Thread currentThread = Thread.currentThread();
+    synchronized (lockThreadIsWaitingFor) {
+      if (isWaitingFor(owner, currentThread)) {
+        return false;
+      }
+      lockThreadIsWaitingFor.put(currentThread, this);
+    }
+    try {
+      lock.lock();
+    } finally {
+      synchronized (lockThreadIsWaitingFor) {
+        lockThreadIsWaitingFor.remove(currentThread);
+      }
+    }
+    owner = currentThread;
+    return true;
+  }
+
+  /**
+   * Acquires this lock only if no other thread holds it.
+   *
+   * @return true if the lock was acquired, and must be released with {@link #unlock}.
+   */
+  public boolean tryLock() {
+    if (!lock.tryLock()) {
+      return false;
+    }
+    owner = Thread.currentThread();
+    return true;
+  }
+
+  /** Releases this lock once for each time it was acquired. */
+  public void unlock() {
+    if (lock.getHoldCount() == 1) {
+      owner = null;
+    }
+    lock.unlock();
+  }
+
+  /** Returns true if the current thread holds this lock. */
+  public boolean isHeldByCurrentThread() {
+    return lock.isHeldByCurrentThread();
+  }
+
+  /** Returns the thread holding this lock, or null. */
+  public Thread getOwner() {
+    return owner;
+  }
+
+  /**
+   * Returns true if {@code thread} is, directly or through the owners of the locks it's waiting
+   * for, waiting for {@code target}. Must hold the monitor of {@link #lockThreadIsWaitingFor}.
+   */
+  private static boolean isWaitingFor(Thread thread, Thread target) {
+    Set<Thread> visited = Sets.newHashSet();
+    while (thread != null && visited.add(thread)) {
+      if (thread == target) {
+        return true;
+      }
+      CycleDetectingLock waitingFor = lockThreadIsWaitingFor.get(thread);
+      thread = waitingFor != null ? waitingFor.owner : null;
+    }
+    return false;
+  }
+
+  @Override public String toString() {
+    return new ToStringBuilder(CycleDetectingLock.class)
+        .add("owner", owner)
+        .toString();
+  }
+}
@@ -32,12 +32,23 @@ import java.util.List;
 final class DefaultConstructionProxyFactory<T> implements ConstructionProxyFactory<T> {
 
   private final InjectionPoint injectionPoint;
+  private final boolean fastClass;
 
   /**
    * @param injectionPoint an injection point whose member is a constructor of {@code T}.
    */
   DefaultConstructionProxyFactory(InjectionPoint injectionPoint) {
+    this(injectionPoint, true);
+  }
+
+  /**
+   * @param injectionPoint an injection point whose member is a constructor of {@code T}.
+   * @param fastClass false to always use reflection, rather than generating a fast class for public
+   *     constructors.
+   */
+  DefaultConstructionProxyFactory(InjectionPoint injectionPoint, boolean fastClass) {
     this.injectionPoint = injectionPoint;
+    this.fastClass = fastClass;
   }
 
   public ConstructionProxy<T> create() {
@@ -45,8 +56,8 @@ final class DefaultConstructionProxyFactory<T> implements ConstructionProxyFacto
     final Constructor<T> constructor = (Constructor<T>) injectionPoint.getMember();
 
     // Use FastConstructor if the constructor is public.
-    if (Modifier.isPublic(constructor.getModifiers())) {
-      Class<T> classToConstruct = constructor.getDeclaringClass();
+    Class<T> classToConstruct = constructor.getDeclaringClass();
+    if (fastClass && Modifier.isPublic(constructor.getModifiers())) {
       /*if[AOP]*/
       try {
         final net.sf.cglib.reflect.FastConstructor fastConstructor
@@ -71,10 +82,10 @@ final class DefaultConstructionProxyFactory<T> implements ConstructionProxyFacto
       };
       } catch (net.sf.cglib.core.CodeGenerationException e) {/* fall-through */}
       /*end[AOP]*/
-      if (!Modifier.isPublic(classToConstruct.getModifiers())) {
-        constructor.setAccessible(true);
-      }
-    } else {
+    }
+
+    if (!Modifier.isPublic(constructor.getModifiers())
+        || !Modifier.isPublic(classToConstruct.getModifiers())) {
       constructor.setAccessible(true);
     }
 
@@ -43,6 +43,7 @@ import com.google.inject.spi.Dependency;
 import com.google.inject.spi.InjectionListener;
 import com.google.inject.spi.InjectionPoint;
 import com.google.inject.spi.Message;
+import com.google.inject.spi.JitProviderListenerBinding;
 import com.google.inject.spi.TypeListenerBinding;
 
 /**
@@ -201,8 +202,29 @@ public final class Errors implements Serializable {
     return addMessage("@ProvidedJustInTimeBy points to the same class it annotates.");
   }
 
-  public Errors jitAnnotatedTypeCannotBeProvidedByJitProvider() {
-    return addMessage("@ProvidedJustInTimeBy points to a type it cannot provide.");
+  public Errors recursiveJitProvider(Key<?> key) {
+    return addMessage("The just-in-time provider for %s depends on an instance it provides.", key);
+  }
+
+  public Errors scopedAsyncJitProvider(Key<?> key) {
+    return addMessage("Cannot provide a future of %s because it is scoped, and its asynchronous "
+        + "just-in-time provider only provides unscoped instances asynchronously. Inject %s "
+        + "instead.", key, key);
+  }
+
+  public Errors futureCompletedWithNull(Key<?> key) {
+    return addMessage("The future of %s provided by an asynchronous just-in-time provider "
+        + "completed with null.", key);
+  }
+
+  public Errors jitBindingCycle(Key<?> key) {
+    return addMessage("Cannot create a just-in-time binding for %s because another thread is "
+        + "creating bindings it depends on while waiting for this thread.", key);
+  }
+
+  public Errors invalidCanonicalKey(Key<?> key, Key<?> canonicalKey) {
+    return addMessage("The just-in-time provider for %s canonicalizes it to %s, which it either "
+        + "cannot provide or canonicalizes to another key.", key, canonicalKey);
   }
 
   public Errors missingRuntimeRetention(Object source) {
@@ -338,6 +360,13 @@ public final class Errors implements Serializable {
             .getSource()), type, cause);
   }
 
+  public Errors errorNotifyingJitProviderListener(JitProviderListenerBinding listener,
+      Key<?> key, Throwable cause) {
+    return errorInUserCode(cause,
+        "Error notifying JitProviderListener %s (bound at %s) of %s.%n"
+            + " Reason: %s", listener.getListener(), convert(listener.getSource()), key, cause);
+  }
+
   public Errors errorInjectingConstructor(Throwable cause) {
     return errorInUserCode(cause, "Error injecting constructor, %s", cause);
   }
@@ -468,6 +497,46 @@ public final class Errors implements Serializable {
     return this;
   }
 
+  /**
+   * Adds {@code source} to the messages added since there were {@code numErrorsBefore}, as if
+   * they had been added to {@code withSource(source)}. Provisions call this once done rather than
+   * {@link #withSource} beforehand, so that nothing is allocated for a source unless something
+   * fails.
+   */
+  public Errors addSourceToNewMessages(int numErrorsBefore, Object source) {
+    if (source == SourceProvider.UNKNOWN_SOURCE || size() == numErrorsBefore) {
+      return this;
+    }
+
+    int depth = getSources().size();
+    for (int i = numErrorsBefore; i < size(); i++) {
+      Message message = root.errors.get(i);
+      List<Object> sources = Lists.newArrayList(message.getSources());
+      sources.add(Math.min(depth, sources.size()), source);
+      root.errors.set(i, new Message(sources, message.getMessage(), message.getCause()));
+    }
+    return this;
+  }
+
+  /**
+   * Removes the messages added since there were {@code numErrorsBefore}, and returns them ordered
+   * like {@link #getMessages}. Lets a per-thread errors object be reused across provisions.
+   */
+  public List<Message> removeNewMessages(int numErrorsBefore) {
+    if (size() == numErrorsBefore) {
+      return ImmutableList.of();
+    }
+
+    List<Message> newMessages = root.errors.subList(numErrorsBefore, root.errors.size());
+    List<Message> result = Lists.newArrayList(newMessages);
+    newMessages.clear();
+    if (root.errors.isEmpty()) {
+      root.errors = null;
+    }
+    Collections.sort(result, MESSAGE_ORDER);
+    return result;
+  }
+
   public List<Object> getSources() {
     List<Object> sources = Lists.newArrayList();
     for (Errors e = this; e != null; e = e.parent) {
@@ -526,15 +595,17 @@ public final class Errors implements Serializable {
     }
 
     List<Message> result = Lists.newArrayList(root.errors);
-    Collections.sort(result, new Comparator<Message>() {
-      public int compare(Message a, Message b) {
-        return a.getSource().compareTo(b.getSource());
-      }
-    });
+    Collections.sort(result, MESSAGE_ORDER);
 
     return result;
   }
 
+  private static final Comparator<Message> MESSAGE_ORDER = new Comparator<Message>() {
+    public int compare(Message a, Message b) {
+      return a.getSource().compareTo(b.getSource());
+    }
+  };
+
   /**
    * Returns the formatted message for an exception with the specified messages.
    */
@@ -50,7 +50,14 @@ final class FactoryProxy<T> implements InternalFactory<T>, BindingProcessor.Crea
 
   public T get(Errors errors, InternalContext context, Dependency<?> dependency, boolean linked)
       throws ErrorsException {
-    return targetFactory.get(errors.withSource(targetKey), context, dependency, true);
+    int numErrorsBefore = errors.size();
+    try {
+      return targetFactory.get(errors, context, dependency, true);
+    } catch (ErrorsException e) {
+      throw errors.merge(e.getErrors()).toException();
+    } finally {
+      errors.addSourceToNewMessages(numErrorsBefore, targetKey);
+    }
   }
 
   @Override public String toString() {
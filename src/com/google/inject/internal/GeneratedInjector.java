@@ -0,0 +1,135 @@
+/**
+ * Copyright (C) 2010 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.inject.internal;
+
+import com.google.inject.spi.InjectionPoint;
+import java.lang.reflect.InvocationTargetException;
+
+/**
+ * Injects instances of one type with code generated for that type, which calls its constructor,
+ * sets its fields and invokes its methods directly rather than through reflection. Parameters are
+ * obtained one at a time and kept in local variables, so no arrays of arguments are allocated.
+ *
+ * <p>Generated code may only use the members it can access, unless it invokes them through method
+ * handles. Members it doesn't cover keep their reflective injectors.
+ *
+ * <p>This class is public so that classes generated in the packages of user types can extend it.
+ *
+ * @see InjectorGenerator
+ */
+public abstract class GeneratedInjector {
+
+  /** Parameter injectors of the constructor, followed by those of each generated method. */
+  private SingleParameterInjector<?>[][] parameterInjectors;
+  /** Indices of the generated fields and methods. */
+  private ImmutableMap<InjectionPoint, Integer> memberIndices;
+  private boolean constructs;
+  /** Method handles of the members that generated code cannot access directly. */
+  private Object[] handles;
+
+  void initialize(SingleParameterInjector<?>[][] parameterInjectors,
+      ImmutableMap<InjectionPoint, Integer> memberIndices, boolean constructs, Object[] handles) {
+    this.parameterInjectors = parameterInjectors;
+    this.memberIndices = memberIndices;
+    this.constructs = constructs;
+    this.handles = handles;
+  }
+
+  /** Returns true if this calls the constructor of its type. */
+  boolean constructs() {
+    return constructs;
+  }
+
+  /**
+   * Returns the index of the field or method at {@code injectionPoint}, or -1 if this doesn't
+   * inject it.
+   */
+  int indexOf(InjectionPoint injectionPoint) {
+    Integer index = memberIndices.get(injectionPoint);
+    return index != null ? index : -1;
+  }
+
+  /**
+   * Constructs an instance, or returns null if one of the constructor's parameters could not be
+   * provided. Only called if this {@link #constructs}.
+   */
+  Object newInstance(Errors errors, InternalContext context) throws InvocationTargetException {
+    try {
+      return construct(errors, context);
+    } catch (Error e) {
+      throw e;
+    } catch (Throwable userException) {
+      throw new InvocationTargetException(userException);
+    }
+  }
+
+  /**
+   * Invokes the method at {@code index} on {@code instance}, unless one of its parameters could not
+   * be provided.
+   */
+  void inject(int index, Errors errors, InternalContext context, Object instance)
+      throws InvocationTargetException {
+    try {
+      invokeMethod(index, errors, context, instance);
+    } catch (Error e) {
+      throw e;
+    } catch (Throwable userException) {
+      throw new InvocationTargetException(userException);
+    }
+  }
+
+  /**
+   * Calls the constructor with the parameters returned by {@link #parameter}, or returns null if
+   * errors were added while getting them. Only generated if this {@link #constructs}.
+   */
+  public Object construct(Errors errors, InternalContext context) throws Throwable {
+    throw new AssertionError();
+  }
+
+  /** Sets the field at {@code index} of {@code instance} to {@code value}. */
+  public abstract void setField(int index, Object instance, Object value);
+
+  /**
+   * Invokes the method at {@code index} with the parameters returned by {@link #parameter}, unless
+   * errors were added while getting them.
+   */
+  public abstract void invokeMethod(int index, Errors errors, InternalContext context,
+      Object instance) throws Throwable;
+
+  /** Returns the number of errors, to tell whether getting parameters added some. */
+  protected final int errorCount(Errors errors) {
+    return errors.size();
+  }
+
+  /** Returns the method handle at {@code index}, as looked up by {@link MethodHandleLookup}. */
+  protected final Object handle(int index) {
+    return handles[index];
+  }
+
+  /**
+   * Returns parameter {@code index} of the constructor if {@code member} is 0, or of the method at
+   * {@code member - 1} otherwise. Returns null and adds to {@code errors} if it fails.
+   */
+  protected final Object parameter(Errors errors, InternalContext context, int member, int index) {
+    try {
+      return parameterInjectors[member][index].inject(errors, context);
+    } catch (ErrorsException e) {
+      errors.merge(e.getErrors());
+      return null;
+    }
+  }
+}
@@ -28,6 +28,7 @@ import com.google.inject.Binding;
 import com.google.inject.Key;
 import com.google.inject.Scope;
 import com.google.inject.TypeLiteral;
+import com.google.inject.spi.JitProviderListenerBinding;
 import com.google.inject.spi.TypeListenerBinding;
 
 /**
@@ -41,15 +42,26 @@ final class InheritingState implements State {
   private final Map<Key<?>, Binding<?>> explicitBindingsMutable = Maps.newLinkedHashMap();
   private final Map<Key<?>, Binding<?>> explicitBindings
       = Collections.unmodifiableMap(explicitBindingsMutable);
-  private final List<JitBindingImpl<?>> jitBindings = Lists.newArrayList();
+  private final JitBindingIndex jitBindings = new JitBindingIndex();
+  /**
+   * The just-in-time bindings of this level and of its ancestors, built on first use and rebuilt
+   * when a level changes. Guarded by inheritedJitBindingsLock
+   */
+  private JitBindingIndex inheritedJitBindings;
+  private int inheritedJitBindingsModificationCount;
+  /** Not {@link #lock()}, which is held while building injectors of the hierarchy. */
+  private final Object inheritedJitBindingsLock = new Object();
   private final Map<Class<? extends Annotation>, Scope> scopes = Maps.newHashMap();
   private final List<MatcherAndConverter> converters = Lists.newArrayList();
   /*if[AOP]*/
   private final List<MethodAspect> methodAspects = Lists.newArrayList();
   /*end[AOP]*/
   private final List<TypeListenerBinding> listenerBindings = Lists.newArrayList();
+  private final List<JitProviderListenerBinding> jitProviderListenerBindings
+      = Lists.newArrayList();
   private final WeakKeySet blacklistedKeys = new WeakKeySet();
   private final Object lock;
+  private volatile int modificationCount;
 
   InheritingState(State parent) {
     this.parent = checkNotNull(parent, "parent");
@@ -72,14 +84,48 @@ final class InheritingState implements State {
 
   public void putBinding(Key<?> key, BindingImpl<?> binding) {
     explicitBindingsMutable.put(key, binding);
+    modificationCount++;
   }
 
   public List<JitBindingImpl<?>> getJitBindingsThisLevel() {
-    return jitBindings;
+    return jitBindings.getAll();
+  }
+
+  public List<JitBindingImpl<?>> getJitBindingCandidatesThisLevel(Key<?> key) {
+    return jitBindings.getCandidates(key);
+  }
+
+  public List<JitBindingImpl<?>> getInheritedJitBindingCandidates(Key<?> key) {
+    if (parent == State.NONE) {
+      return jitBindings.getCandidates(key);
+    }
+
+    synchronized (inheritedJitBindingsLock) {
+      int count = getModificationCount();
+      if (inheritedJitBindings == null || inheritedJitBindingsModificationCount != count) {
+        List<State> levels = Lists.newArrayList();
+        for (State level = this; level != State.NONE; level = level.parent()) {
+          levels.add(level);
+        }
+        inheritedJitBindings = new JitBindingIndex();
+        for (int i = levels.size() - 1; i >= 0; i--) {
+          for (JitBindingImpl<?> jitBinding : levels.get(i).getJitBindingsThisLevel()) {
+            inheritedJitBindings.add(jitBinding);
+          }
+        }
+        inheritedJitBindingsModificationCount = count;
+      }
+      return inheritedJitBindings.getCandidates(key);
+    }
+  }
+
+  public Map<JitBindingImpl<?>, JitBindingImpl<?>> getShadowedJitBindingsThisLevel() {
+    return jitBindings.getShadowed();
   }
 
   public void addJitBinding(JitBindingImpl<?> jitBinding) {
     jitBindings.add(jitBinding);
+    modificationCount++;
   }
 
   public Scope getScope(Class<? extends Annotation> annotationType) {
@@ -97,6 +143,7 @@ final class InheritingState implements State {
 
   public void addConverter(MatcherAndConverter matcherAndConverter) {
     converters.add(matcherAndConverter);
+    modificationCount++;
   }
 
   public MatcherAndConverter getConverter(
@@ -141,6 +188,19 @@ final class InheritingState implements State {
     return result;
   }
 
+  public void addJitProviderListener(JitProviderListenerBinding listenerBinding) {
+    jitProviderListenerBindings.add(listenerBinding);
+  }
+
+  public List<JitProviderListenerBinding> getJitProviderListenerBindings() {
+    List<JitProviderListenerBinding> parentBindings = parent.getJitProviderListenerBindings();
+    List<JitProviderListenerBinding> result = new ArrayList<JitProviderListenerBinding>(
+        parentBindings.size() + jitProviderListenerBindings.size());
+    result.addAll(parentBindings);
+    result.addAll(jitProviderListenerBindings);
+    return result;
+  }
+
   public void blacklist(Key<?> key) {
     parent.blacklist(key);
     blacklistedKeys.add(key);
@@ -154,6 +214,10 @@ final class InheritingState implements State {
     return lock;
   }
 
+  public int getModificationCount() {
+    return modificationCount + parent.getModificationCount();
+  }
+
   public Map<Class<? extends Annotation>, Scope> getScopes() {
     return scopes;
   }
@@ -0,0 +1,464 @@
+/**
+ * Copyright (C) 2010 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.inject.internal;
+
+import com.google.inject.spi.InjectionPoint;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Member;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+
+/**
+ * Generates a {@link GeneratedInjector} for a type, with ASM.
+ *
+ * <p>Generated classes have no special access to the type: they can't use private members, and can
+ * only use package-private and protected members when loaded by the type's class loader in the
+ * type's package. Members they can't use are left to reflection, or invoked through method handles
+ * if {@code useMethodHandles} is set. Methods whose parameters may be provided in batches by {@link
+ * com.google.inject.BatchJitProvider}s are always left to reflection.
+ */
+final class InjectorGenerator implements Opcodes {
+
+  private static final String SUPER_NAME = Type.getInternalName(GeneratedInjector.class);
+  private static final String ERRORS = Type.getDescriptor(Errors.class);
+  private static final String CONTEXT = Type.getDescriptor(InternalContext.class);
+  private static final String ERROR_COUNT_DESCRIPTOR = "(" + ERRORS + ")I";
+  private static final String PARAMETER_DESCRIPTOR
+      = "(" + ERRORS + CONTEXT + "II)Ljava/lang/Object;";
+  private static final String METHOD_HANDLE = "java/lang/invoke/MethodHandle";
+
+  private static final ImmutableMap<Class<?>, Class<?>> WRAPPERS
+      = new ImmutableMap.Builder<Class<?>, Class<?>>()
+          .put(boolean.class, Boolean.class)
+          .put(byte.class, Byte.class)
+          .put(short.class, Short.class)
+          .put(int.class, Integer.class)
+          .put(long.class, Long.class)
+          .put(float.class, Float.class)
+          .put(double.class, Double.class)
+          .put(char.class, Character.class)
+          .build();
+
+  private static final AtomicInteger counter = new AtomicInteger();
+
+  private final Class<?> type;
+  /** True if the class is generated in the package and class loader of {@code type}. */
+  private final boolean samePackageAllowed;
+  private boolean samePackageNeeded = false;
+  private final boolean useMethodHandles;
+  private final List<Object> handles = Lists.newArrayList();
+  /** Indices in {@link #handles} of the members invoked through method handles. */
+  private final Map<Member, Integer> handleIndices = Maps.newHashMap();
+
+  private InjectorGenerator(Class<?> type, boolean useMethodHandles) {
+    this.type = type;
+    this.samePackageAllowed = type.getClassLoader() != null && !type.getName().startsWith("java.");
+    this.useMethodHandles = useMethodHandles;
+  }
+
+  /**
+   * Returns an injector generated for the constructor at {@code injectionPoint} and for {@code
+   * memberInjectors}, or null if none of them can be generated. If {@code useMethodHandles} is
+   * true, members that generated code cannot access are invoked through method handles.
+   */
+  static GeneratedInjector generate(InjectionPoint injectionPoint,
+      SingleParameterInjector<?>[] parameterInjectors, List<SingleMemberInjector> memberInjectors,
+      boolean useMethodHandles) {
+    Constructor<?> constructor = (Constructor<?>) injectionPoint.getMember();
+    try {
+      return new InjectorGenerator(constructor.getDeclaringClass(), useMethodHandles)
+          .generate(constructor, parameterInjectors, memberInjectors);
+    } catch (Exception e) {
+      BytecodeGen.logger.log(Level.FINE, "Cannot generate an injector for " + injectionPoint, e);
+      return null;
+    } catch (LinkageError e) {
+      BytecodeGen.logger.log(Level.FINE, "Cannot generate an injector for " + injectionPoint, e);
+      return null;
+    }
+  }
+
+  private GeneratedInjector generate(Constructor<?> constructor,
+      SingleParameterInjector<?>[] constructorParameterInjectors,
+      List<SingleMemberInjector> memberInjectors) throws Exception {
+    boolean constructs = !mayBatch(constructorParameterInjectors)
+        && canInvoke(constructor, constructor.getParameterTypes());
+
+    List<Field> fields = Lists.newArrayList();
+    List<Method> methods = Lists.newArrayList();
+    List<SingleParameterInjector<?>[]> parameterInjectors = Lists.newArrayList();
+    parameterInjectors.add(constructorParameterInjectors);
+    ImmutableMap.Builder<InjectionPoint, Integer> memberIndices = ImmutableMap.builder();
+    for (SingleMemberInjector memberInjector : memberInjectors) {
+      InjectionPoint injectionPoint = memberInjector.getInjectionPoint();
+      Member member = injectionPoint.getMember();
+      if (member instanceof Field) {
+        Field field = (Field) member;
+        if (canInvoke(field, field.getType())) {
+          memberIndices.put(injectionPoint, fields.size());
+          fields.add(field);
+        }
+      } else {
+        Method method = (Method) member;
+        SingleParameterInjector<?>[] methodParameterInjectors
+            = ((SingleMethodInjector) memberInjector).getParameterInjectors();
+        if (!mayBatch(methodParameterInjectors) && canInvoke(method, method.getParameterTypes())) {
+          memberIndices.put(injectionPoint, methods.size());
+          methods.add(method);
+          parameterInjectors.add(methodParameterInjectors);
+        }
+      }
+    }
+
+    if (!constructs && fields.isEmpty() && methods.isEmpty()) {
+      return null;
+    }
+
+    String prefix = samePackageNeeded || !type.getName().startsWith("java.") ? "" : "$";
+    String className = prefix + type.getName() + "$$InjectorByGuice$$" + counter.incrementAndGet();
+    ClassLoader classLoader = samePackageNeeded
+        ? type.getClassLoader()
+        : BytecodeGen.getClassLoader(type);
+
+    ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+    cw.visit(V1_5, ACC_PUBLIC | ACC_FINAL | ACC_SUPER, className.replace('.', '/'), null,
+        SUPER_NAME, null);
+    generateConstructor(cw);
+    if (constructs) {
+      generateConstruct(cw, constructor);
+    }
+    generateSetField(cw, fields);
+    generateInvokeMethod(cw, methods);
+    cw.visitEnd();
+
+    BytecodeGen.logger.fine("Loading " + className + " with " + classLoader);
+    Class<?> generatedClass
+        = net.sf.cglib.core.ReflectUtils.defineClass(className, cw.toByteArray(), classLoader);
+    GeneratedInjector result = (GeneratedInjector) generatedClass.newInstance();
+    result.initialize(
+        parameterInjectors.toArray(new SingleParameterInjector<?>[parameterInjectors.size()][]),
+        memberIndices.build(), constructs, handles.toArray());
+    return result;
+  }
+
+  /**
+   * Returns true if the parameters could be provided in batches, which only the reflective
+   * injectors do.
+   */
+  private static boolean mayBatch(SingleParameterInjector<?>[] parameterInjectors) {
+    return JitProviderFactory.findBatches(parameterInjectors) != null;
+  }
+
+
+  /**
+   * Returns true if generated code can invoke {@code member}, whose signature has {@code types},
+   * either directly or through a method handle.
+   */
+  private boolean canInvoke(Member member, Class<?>... types) {
+    if (canUse(member, types)) {
+      return true;
+    }
+    if (!useMethodHandles) {
+      return false;
+    }
+
+    Object handle = member instanceof Constructor
+        ? MethodHandleLookup.forConstructor((Constructor<?>) member)
+        : member instanceof Method
+            ? MethodHandleLookup.forMethod((Method) member)
+            : MethodHandleLookup.forFieldSetter((Field) member);
+    if (handle == null) {
+      return false;
+    }
+    handleIndices.put(member, handles.size());
+    handles.add(handle);
+    return true;
+  }
+
+  /** Returns true if generated code can use {@code member}, whose signature has {@code types}. */
+  private boolean canUse(Member member, Class<?>... types) {
+    int modifiers = member.getModifiers();
+    if (Modifier.isPrivate(modifiers) || !canUse(member.getDeclaringClass())) {
+      return false;
+    }
+    if (!Modifier.isPublic(modifiers)) {
+      if (!inSamePackage(member.getDeclaringClass())) {
+        return false;
+      }
+      samePackageNeeded = true;
+    }
+    for (Class<?> t : types) {
+      if (!canUse(t)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private boolean canUse(Class<?> t) {
+    while (t.isArray()) {
+      t = t.getComponentType();
+    }
+    if (t.isPrimitive() || BytecodeGen.Visibility.forType(t) == BytecodeGen.Visibility.PUBLIC) {
+      return true;
+    }
+    if (!inSamePackage(t)) {
+      return false;
+    }
+    samePackageNeeded = true;
+    return true;
+  }
+
+  private boolean inSamePackage(Class<?> t) {
+    return samePackageAllowed
+        && t.getClassLoader() == type.getClassLoader()
+        && packageOf(t).equals(packageOf(type));
+  }
+
+  private static String packageOf(Class<?> t) {
+    String name = t.getName();
+    int lastDot = name.lastIndexOf('.');
+    return lastDot == -1 ? "" : name.substring(0, lastDot);
+  }
+
+  private void generateConstructor(ClassWriter cw) {
+    MethodVisitor mv = cw.visitMethod(ACC_PUBLIC, "<init>", "()V", null, null);
+    mv.visitCode();
+    mv.visitVarInsn(ALOAD, 0);
+    mv.visitMethodInsn(INVOKESPECIAL, SUPER_NAME, "<init>", "()V");
+    mv.visitInsn(RETURN);
+    mv.visitMaxs(0, 0);
+    mv.visitEnd();
+  }
+
+  /** Generates {@code construct(errors, context)}, which calls {@code constructor}. */
+  private void generateConstruct(ClassWriter cw, Constructor<?> constructor) {
+    MethodVisitor mv = cw.visitMethod(ACC_PUBLIC, "construct",
+        "(" + ERRORS + CONTEXT + ")Ljava/lang/Object;", null, null);
+    mv.visitCode();
+    Class<?>[] parameterTypes = constructor.getParameterTypes();
+    Label provided = generateParameters(mv, 0, parameterTypes.length, 1, 2, 3);
+    if (provided != null) {
+      mv.visitInsn(ACONST_NULL);
+      mv.visitInsn(ARETURN);
+      mv.visitLabel(provided);
+    }
+    Integer handle = handleIndices.get(constructor);
+    if (handle != null) {
+      loadHandle(mv, handle);
+      Class<?>[] erasedTypes = MethodHandleLookup.erase(parameterTypes, false);
+      loadParameters(mv, erasedTypes, 4);
+      invokeHandle(mv, Object.class, erasedTypes);
+    } else {
+      String owner = Type.getInternalName(constructor.getDeclaringClass());
+      mv.visitTypeInsn(NEW, owner);
+      mv.visitInsn(DUP);
+      loadParameters(mv, parameterTypes, 4);
+      mv.visitMethodInsn(INVOKESPECIAL, owner, "<init>",
+          Type.getConstructorDescriptor(constructor));
+    }
+    mv.visitInsn(ARETURN);
+    mv.visitMaxs(0, 0);
+    mv.visitEnd();
+  }
+
+  /** Generates {@code setField(index, instance, value)}. */
+  private void generateSetField(ClassWriter cw, List<Field> fields) {
+    MethodVisitor mv = cw.visitMethod(ACC_PUBLIC, "setField",
+        "(ILjava/lang/Object;Ljava/lang/Object;)V", null, null);
+    mv.visitCode();
+    Label[] labels = generateSwitch(mv, fields.size());
+    for (int i = 0; i < fields.size(); i++) {
+      Field field = fields.get(i);
+      mv.visitLabel(labels[i]);
+      Integer handle = handleIndices.get(field);
+      if (handle != null) {
+        loadHandle(mv, handle);
+        Class<?>[] erasedTypes = MethodHandleLookup.erase(new Class<?>[] { field.getType() }, true);
+        mv.visitVarInsn(ALOAD, 2);
+        mv.visitVarInsn(ALOAD, 3);
+        unbox(mv, erasedTypes[1]);
+        invokeHandle(mv, void.class, erasedTypes);
+      } else {
+        String owner = Type.getInternalName(field.getDeclaringClass());
+        mv.visitVarInsn(ALOAD, 2);
+        mv.visitTypeInsn(CHECKCAST, owner);
+        mv.visitVarInsn(ALOAD, 3);
+        unbox(mv, field.getType());
+        mv.visitFieldInsn(PUTFIELD, owner, field.getName(), Type.getDescriptor(field.getType()));
+      }
+      mv.visitInsn(RETURN);
+    }
+    mv.visitMaxs(0, 0);
+    mv.visitEnd();
+  }
+
+  /** Generates {@code invokeMethod(index, errors, context, instance)}. */
+  private void generateInvokeMethod(ClassWriter cw, List<Method> methods) {
+    MethodVisitor mv = cw.visitMethod(ACC_PUBLIC, "invokeMethod",
+        "(I" + ERRORS + CONTEXT + "Ljava/lang/Object;)V", null, null);
+    mv.visitCode();
+    Label[] labels = generateSwitch(mv, methods.size());
+    for (int i = 0; i < methods.size(); i++) {
+      Method method = methods.get(i);
+      Class<?>[] parameterTypes = method.getParameterTypes();
+      mv.visitLabel(labels[i]);
+      Label provided = generateParameters(mv, i + 1, parameterTypes.length, 2, 3, 5);
+      if (provided != null) {
+        mv.visitInsn(RETURN);
+        mv.visitLabel(provided);
+      }
+      Integer handle = handleIndices.get(method);
+      if (handle != null) {
+        loadHandle(mv, handle);
+        mv.visitVarInsn(ALOAD, 4);
+        loadParameters(mv, MethodHandleLookup.erase(parameterTypes, false), 6);
+        invokeHandle(mv, void.class, MethodHandleLookup.erase(parameterTypes, true));
+      } else {
+        Class<?> declaringClass = method.getDeclaringClass();
+        String owner = Type.getInternalName(declaringClass);
+        mv.visitVarInsn(ALOAD, 4);
+        mv.visitTypeInsn(CHECKCAST, owner);
+        loadParameters(mv, parameterTypes, 6);
+        mv.visitMethodInsn(declaringClass.isInterface() ? INVOKEINTERFACE : INVOKEVIRTUAL, owner,
+            method.getName(), Type.getMethodDescriptor(method));
+        Class<?> returnType = method.getReturnType();
+        if (returnType == long.class || returnType == double.class) {
+          mv.visitInsn(POP2);
+        } else if (returnType != void.class) {
+          mv.visitInsn(POP);
+        }
+      }
+      mv.visitInsn(RETURN);
+    }
+    mv.visitMaxs(0, 0);
+    mv.visitEnd();
+  }
+
+  /**
+   * Generates a switch on the index in local 1, returning the label of each case. The default
+   * returns.
+   */
+  private Label[] generateSwitch(MethodVisitor mv, int size) {
+    Label[] labels = new Label[size];
+    for (int i = 0; i < size; i++) {
+      labels[i] = new Label();
+    }
+    Label defaultLabel = new Label();
+    if (size > 0) {
+      mv.visitVarInsn(ILOAD, 1);
+      mv.visitTableSwitchInsn(0, size - 1, defaultLabel, labels);
+    }
+    mv.visitLabel(defaultLabel);
+    mv.visitInsn(RETURN);
+    return labels;
+  }
+
+  /**
+   * Stores the parameters of {@code member} in the locals following {@code countLocal}, which holds
+   * the number of errors beforehand. If errors were added, generated code continues with what the
+   * caller generates next, and otherwise jumps to the returned label. Returns null and generates
+   * nothing if there are no parameters.
+   */
+  private Label generateParameters(MethodVisitor mv, int member, int count, int errorsLocal,
+      int contextLocal, int countLocal) {
+    if (count == 0) {
+      return null;
+    }
+
+    mv.visitVarInsn(ALOAD, 0);
+    mv.visitVarInsn(ALOAD, errorsLocal);
+    mv.visitMethodInsn(INVOKEVIRTUAL, SUPER_NAME, "errorCount", ERROR_COUNT_DESCRIPTOR);
+    mv.visitVarInsn(ISTORE, countLocal);
+    for (int i = 0; i < count; i++) {
+      mv.visitVarInsn(ALOAD, 0);
+      mv.visitVarInsn(ALOAD, errorsLocal);
+      mv.visitVarInsn(ALOAD, contextLocal);
+      pushInt(mv, member);
+      pushInt(mv, i);
+      mv.visitMethodInsn(INVOKEVIRTUAL, SUPER_NAME, "parameter", PARAMETER_DESCRIPTOR);
+      mv.visitVarInsn(ASTORE, countLocal + 1 + i);
+    }
+
+    Label noNewErrors = new Label();
+    mv.visitVarInsn(ALOAD, 0);
+    mv.visitVarInsn(ALOAD, errorsLocal);
+    mv.visitMethodInsn(INVOKEVIRTUAL, SUPER_NAME, "errorCount", ERROR_COUNT_DESCRIPTOR);
+    mv.visitVarInsn(ILOAD, countLocal);
+    mv.visitJumpInsn(IF_ICMPEQ, noNewErrors);
+    return noNewErrors;
+  }
+
+  /** Pushes the method handle at {@code index}. */
+  private void loadHandle(MethodVisitor mv, int index) {
+    mv.visitVarInsn(ALOAD, 0);
+    pushInt(mv, index);
+    mv.visitMethodInsn(INVOKEVIRTUAL, SUPER_NAME, "handle", "(I)Ljava/lang/Object;");
+    mv.visitTypeInsn(CHECKCAST, METHOD_HANDLE);
+  }
+
+  /** Invokes the method handle below the arguments on the stack, with its exact type. */
+  private void invokeHandle(MethodVisitor mv, Class<?> returnType, Class<?>[] parameterTypes) {
+    Type[] types = new Type[parameterTypes.length];
+    for (int i = 0; i < parameterTypes.length; i++) {
+      types[i] = Type.getType(parameterTypes[i]);
+    }
+    mv.visitMethodInsn(INVOKEVIRTUAL, METHOD_HANDLE, "invokeExact",
+        Type.getMethodDescriptor(Type.getType(returnType), types));
+  }
+
+  private void loadParameters(MethodVisitor mv, Class<?>[] parameterTypes, int firstLocal) {
+    for (int i = 0; i < parameterTypes.length; i++) {
+      mv.visitVarInsn(ALOAD, firstLocal + i);
+      unbox(mv, parameterTypes[i]);
+    }
+  }
+
+  /** Casts the object on the stack to {@code t}, unboxing it if {@code t} is primitive. */
+  private void unbox(MethodVisitor mv, Class<?> t) {
+    if (!t.isPrimitive()) {
+      if (t != Object.class) {
+        mv.visitTypeInsn(CHECKCAST, Type.getInternalName(t));
+      }
+      return;
+    }
+
+    String wrapper = Type.getInternalName(WRAPPERS.get(t));
+    mv.visitTypeInsn(CHECKCAST, wrapper);
+    mv.visitMethodInsn(INVOKEVIRTUAL, wrapper, t.getName() + "Value",
+        "()" + Type.getDescriptor(t));
+  }
+
+  private void pushInt(MethodVisitor mv, int value) {
+    if (value <= 5) {
+      mv.visitInsn(ICONST_0 + value);
+    } else if (value <= Byte.MAX_VALUE) {
+      mv.visitIntInsn(BIPUSH, value);
+    } else {
+      mv.visitIntInsn(SIPUSH, value);
+    }
+  }
+}
@@ -25,9 +25,11 @@ import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Future;
 
 import com.google.inject.Binder;
 import com.google.inject.Binding;
@@ -35,6 +37,7 @@ import com.google.inject.ConfigurationException;
 import com.google.inject.ImplementedBy;
 import com.google.inject.Injector;
 import com.google.inject.InjectorBuilder;
+import com.google.inject.JitBinding;
 import com.google.inject.JitProvider;
 import com.google.inject.Key;
 import com.google.inject.MembersInjector;
@@ -51,6 +54,7 @@ import com.google.inject.spi.ConvertedConstantBinding;
 import com.google.inject.spi.Dependency;
 import com.google.inject.spi.HasDependencies;
 import com.google.inject.spi.InjectionPoint;
+import com.google.inject.spi.Message;
 import com.google.inject.spi.ProviderBinding;
 import com.google.inject.util.Providers;
 
@@ -80,8 +84,51 @@ final class InjectorImpl implements Injector, Lookups {
   final BindingsMultimap bindingsMultimap = new BindingsMultimap();
   final InjectorOptions options;
 
-  /** Just-in-time binding cache. Guarded by state.lock() */
-  final Map<Key<?>, BindingImpl<?>> jitBindings = Maps.newHashMap();
+  /**
+   * Published just-in-time bindings. Readable without locking, and written while holding the root
+   * injector's {@link #jitBindingsLock}. Bindings still being created are only visible to the
+   * creating thread, in its {@link JitCreation}.
+   */
+  final Map<Key<?>, BindingImpl<?>> jitBindings = new MapMaker().makeMap();
+
+  /**
+   * Keys of the unscoped bindings created by just-in-time providers, oldest first. Only tracked if
+   * the injector limits their number. Guarded by root.jitBindingsLock
+   */
+  private final Set<Key<?>> evictableJitKeys = Sets.newLinkedHashSet();
+
+  /**
+   * The just-in-time providers of this injector's just-in-time bindings, shared by all the keys
+   * each of them provides. Guarded by root.jitBindingsLock
+   */
+  private final Map<JitBindingImpl<?>, JitProviderReference<?>> jitProviders = Maps.newHashMap();
+
+  /**
+   * Providers returned by {@link #getProvider(Key)}, keyed by their key, or by their type when
+   * requested by type. Readable without locking.
+   */
+  private final Map<Object, Provider<?>> providers = new MapMaker().makeMap();
+
+  /** The root of the injector hierarchy, which owns the locks shared by all injectors. */
+  private final InjectorImpl root;
+
+  /**
+   * Guards the just-in-time binding bookkeeping of the injector hierarchy. Only used on the root
+   * injector. It is only held briefly, never while waiting or creating bindings.
+   */
+  private final Object jitBindingsLock = new Object();
+
+  /**
+   * The locks of the keys whose just-in-time bindings are being created in the injector hierarchy.
+   * Only used on the root injector. Guarded by jitBindingsLock
+   */
+  private final Map<Key<?>, JitCreation.KeyLock> jitCreationLocks = Maps.newHashMap();
+
+  /** The just-in-time binding creation in progress on each thread, shared by the hierarchy. */
+  final ThreadLocal<JitCreation> jitCreations;
+
+  /** Keys for which just-in-time bindings could not be created. Readable without locking. */
+  final JitFailureCache jitFailures = new JitFailureCache();
 
   Lookups lookups = new DeferredLookups(this);
 
@@ -91,11 +138,15 @@ final class InjectorImpl implements Injector, Lookups {
     this.options = injectorOptions;
 
     if (parent != null) {
+      root = parent.root;
       localContext = parent.localContext;
+      jitCreations = parent.jitCreations;
     } else {
-      localContext = new ThreadLocal<Object[]>() {
-        protected Object[] initialValue() {
-          return new Object[1];
+      root = this;
+      jitCreations = new ThreadLocal<JitCreation>();
+      localContext = new ThreadLocal<InternalContext>() {
+        protected InternalContext initialValue() {
+          return new InternalContext();
         }
       };
     }
@@ -134,15 +185,18 @@ final class InjectorImpl implements Injector, Lookups {
     if (explicitBinding != null) {
       return explicitBinding;
     }
-    synchronized (state.lock()) {
-      // See if any jit bindings have been created for this key.
-      for (InjectorImpl injector = this; injector != null; injector = injector.parent) {
-        @SuppressWarnings("unchecked")
-        BindingImpl<T> jitBinding = (BindingImpl<T>) injector.jitBindings.get(key);
-        if(jitBinding != null) {
-          return jitBinding;
-        }
-      }
+    BindingImpl<T> publishedBinding = getPublishedJitBinding(key);
+    if (publishedBinding != null) {
+      return publishedBinding;
+    }
+    // Keys known to fail have no binding. Provider keys still report raw providers below.
+    if (!isProvider(key) && jitFailures.hasFailed(key, state.getModificationCount())) {
+      return null;
+    }
+    // Bindings that aren't published yet are only visible to the thread creating them.
+    BindingImpl<T> creatingBinding = getCreatingJitBinding(jitCreations.get(), key);
+    if (creatingBinding != null) {
+      return creatingBinding;
     }
 
     // If Key is a Provider, we have to see if the type it is providing exists,
@@ -213,25 +267,243 @@ final class InjectorImpl implements Injector, Lookups {
       throw errors.jitDisabled(key).toException();
     }
 
-    synchronized (state.lock()) {
-      // first try to find a JIT binding that we've already created
-      for (InjectorImpl injector = this; injector != null; injector = injector.parent) {
-        @SuppressWarnings("unchecked") // we only store bindings that match their key
-        BindingImpl<T> binding = (BindingImpl<T>) injector.jitBindings.get(key);
+    // most lookups are for bindings that have already been created, which needs no locking
+    BindingImpl<T> publishedBinding = getPublishedJitBinding(key);
+    if (publishedBinding != null) {
+      return publishedBinding;
+    }
 
-        if (binding != null) {
+    // fail fast if we already know that no binding can be created for this key
+    List<Message> failure = jitFailures.get(key, jitType, state.getModificationCount());
+    if (failure != null) {
+      throw errors.merge(failure).toException();
+    }
+
+    JitCreation creation = jitCreations.get();
+    if (creation == null) {
+      return createJustInTimeBindingAndPublish(key, errors, jitType);
+    }
+
+    // a binding created earlier in the ongoing creation, possibly partially constructed
+    BindingImpl<T> creatingBinding = getCreatingJitBinding(creation, key);
+    if (creatingBinding != null) {
+      return creatingBinding;
+    }
+    return createJustInTimeBindingOrRecordFailure(creation, key, errors, jitType);
+  }
+
+  /** Returns the published just-in-time binding for {@code key}, or null. Doesn't lock. */
+  private <T> BindingImpl<T> getPublishedJitBinding(Key<T> key) {
+    for (InjectorImpl injector = this; injector != null; injector = injector.parent) {
+      @SuppressWarnings("unchecked") // we only store bindings that match their key
+      BindingImpl<T> binding = (BindingImpl<T>) injector.jitBindings.get(key);
+      if (binding != null) {
+        return binding;
+      }
+    }
+    return null;
+  }
+
+  /** Returns the binding for {@code key} created by {@code creation}, or null. */
+  private <T> BindingImpl<T> getCreatingJitBinding(@Nullable JitCreation creation, Key<T> key) {
+    if (creation == null) {
+      return null;
+    }
+    for (InjectorImpl injector = this; injector != null; injector = injector.parent) {
+      JitCreation.Level level = creation.getLevel(injector);
+      @SuppressWarnings("unchecked") // we only store bindings that match their key
+      BindingImpl<T> binding = level != null ? (BindingImpl<T>) level.bindings.get(key) : null;
+      if (binding != null) {
+        return binding;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Creates a just-in-time binding for {@code key} and the bindings it depends on, then publishes
+   * them. If the creation is abandoned to break a cycle of threads waiting for each other's keys,
+   * it is retried once the thread it would have waited for is done.
+   */
+  private <T> BindingImpl<T> createJustInTimeBindingAndPublish(
+      Key<T> key, Errors errors, JitLimitation jitType) throws ErrorsException {
+    while (true) {
+      JitCreation creation = new JitCreation();
+      // collect errors apart, so that those of an abandoned creation can be dropped
+      Errors creationErrors = new Errors();
+      jitCreations.set(creation);
+      try {
+        BindingImpl<T> binding =
+            createJustInTimeBindingOrRecordFailure(creation, key, creationErrors, jitType);
+        if (!creation.isAbandoned()) {
+          errors.merge(creationErrors);
           return binding;
         }
+      } catch (ErrorsException e) {
+        if (!creation.isAbandoned()) {
+          throw errors.merge(creationErrors).toException();
+        }
+      } finally {
+        jitCreations.remove();
+        finishJitCreation(creation);
+      }
+
+      // wait for the other thread to publish its bindings, so that the retry doesn't wait for it
+      CycleDetectingLock abandonedFor = creation.getAbandonedFor();
+      if (!abandonedFor.lock()) {
+        // this thread holds a lock the other thread waits for, like a singleton's
+        throw errors.jitBindingCycle(key).toException();
+      }
+      abandonedFor.unlock();
+    }
+  }
+
+  /**
+   * Creates a just-in-time binding for {@code key} within {@code creation}, remembering the errors
+   * if that fails so that later requests for the same key fail without locking.
+   */
+  private <T> BindingImpl<T> createJustInTimeBindingOrRecordFailure(JitCreation creation,
+      Key<T> key, Errors errors, JitLimitation jitType) throws ErrorsException {
+    lockJitCreation(creation, key, errors);
+
+    // another thread may have created the binding while this one waited
+    BindingImpl<T> publishedBinding = getPublishedJitBinding(key);
+    if (publishedBinding != null) {
+      return publishedBinding;
+    }
+    int modificationCount = state.getModificationCount();
+    List<Message> failure = jitFailures.get(key, jitType, modificationCount);
+    if (failure != null) {
+      throw errors.merge(failure).toException();
+    }
+
+    if(options.jitDisabled && jitType != JitLimitation.NEW_OR_EXISTING_JIT && !isProvider(key)) {
+      throw errors.jitDisabled(key).toException();
+    }
+
+    // collect errors without context, so they can be replayed for a different caller
+    Errors bindingErrors = new Errors();
+    try {
+      BindingImpl<T> binding = createJustInTimeBindingRecursive(key, bindingErrors, jitType);
+      errors.merge(bindingErrors);
+      return binding;
+    } catch (ErrorsException e) {
+      List<Message> messages = bindingErrors.merge(e.getErrors()).getMessages();
+      // the creation is retried if it was abandoned, which may then succeed
+      if (!creation.isAbandoned()) {
+        jitFailures.put(key, jitType, modificationCount, messages);
+      }
+      throw errors.merge(messages).toException();
+    }
+  }
+
+  /**
+   * Acquires the lock of {@code key} for {@code creation} until it ends, waiting for any other
+   * thread creating a binding for the key to publish it.
+   *
+   * @throws ErrorsException if the creation is abandoned, because waiting would have closed a
+   *     cycle of threads waiting for each other.
+   */
+  private void lockJitCreation(JitCreation creation, Key<?> key, Errors errors)
+      throws ErrorsException {
+    if (creation.holdsLock(key)) {
+      return;
+    }
+    if (creation.isAbandoned()) {
+      throw errors.jitBindingCycle(key).toException();
+    }
+
+    JitCreation.KeyLock keyLock;
+    synchronized (root.jitBindingsLock) {
+      keyLock = root.jitCreationLocks.get(key);
+      if (keyLock == null) {
+        keyLock = new JitCreation.KeyLock();
+        root.jitCreationLocks.put(key, keyLock);
+      }
+      keyLock.users++;
+    }
+
+    if (!keyLock.lock.lock()) {
+      synchronized (root.jitBindingsLock) {
+        releaseJitCreationLock(key, keyLock);
+      }
+      creation.abandon(keyLock.lock);
+      throw errors.jitBindingCycle(key).toException();
+    }
+    creation.addLock(key, keyLock);
+  }
+
+  /** Stops using {@code keyLock}, forgetting it once unused. Must hold root.jitBindingsLock. */
+  private void releaseJitCreationLock(Key<?> key, JitCreation.KeyLock keyLock) {
+    if (--keyLock.users == 0) {
+      root.jitCreationLocks.remove(key);
+    }
+  }
+
+  /**
+   * Publishes the bindings created by {@code creation}, or discards them if it was abandoned, then
+   * releases its locks.
+   */
+  private void finishJitCreation(JitCreation creation) {
+    if (creation.isAbandoned()) {
+      for (Map.Entry<InjectorImpl, JitCreation.Level> entry : creation.getLevels().entrySet()) {
+        entry.getKey().discardJitBindings(entry.getValue());
+      }
+    }
+
+    synchronized (root.jitBindingsLock) {
+      if (!creation.isAbandoned()) {
+        for (Map.Entry<InjectorImpl, JitCreation.Level> entry : creation.getLevels().entrySet()) {
+          entry.getKey().publishJitBindings(entry.getValue());
+        }
+      }
+      for (Map.Entry<Key<?>, JitCreation.KeyLock> entry : creation.getLocks().entrySet()) {
+        releaseJitCreationLock(entry.getKey(), entry.getValue());
+        entry.getValue().lock.unlock();
       }
+    }
+  }
 
-      if(options.jitDisabled && jitType != JitLimitation.NEW_OR_EXISTING_JIT && !isProvider(key)) {
-        throw errors.jitDisabled(key).toException();
-      } else {
-        return createJustInTimeBindingRecursive(key, errors, jitType);
+  /**
+   * Makes the bindings created for this injector readable by all threads, then evicts the oldest
+   * unscoped bindings created by just-in-time providers if there are too many. Must hold
+   * root.jitBindingsLock.
+   */
+  private void publishJitBindings(JitCreation.Level level) {
+    jitBindings.putAll(level.bindings);
+    evictableJitKeys.addAll(level.evictableKeys);
+
+    Iterator<Key<?>> oldestFirst = evictableJitKeys.iterator();
+    while (evictableJitKeys.size() > options.maximumJitProviderBindings) {
+      Key<?> key = oldestFirst.next();
+      oldestFirst.remove();
+      jitBindings.remove(key);
+    }
+  }
+
+  /**
+   * Drops the injectors and failures cached while creating the bindings of an abandoned creation,
+   * since they depend on bindings that won't be published.
+   */
+  private void discardJitBindings(JitCreation.Level level) {
+    for (BindingImpl<?> binding
+        : Iterables.concat(level.bindings.values(), level.failedBindings)) {
+      if (binding instanceof ConstructorBindingImpl<?>) {
+        membersInjectorStore.remove(binding.getKey().getTypeLiteral());
+        constructors.remove(((ConstructorBindingImpl<?>) binding).getInternalConstructor());
+      } else if (isMembersInjector(binding.getKey())) {
+        Type membersInjectorType = binding.getKey().getTypeLiteral().getType();
+        membersInjectorStore.remove(TypeLiteral.get(
+            ((ParameterizedType) membersInjectorType).getActualTypeArguments()[0]));
       }
     }
   }
 
+  /** Puts a just-in-time binding in the ongoing creation, to be published once it completes. */
+  private void putJitBinding(Key<?> key, BindingImpl<?> binding) {
+    jitCreations.get().level(this).bindings.put(key, binding);
+  }
+
   /** Returns true if the key type is Provider (but not a subclass of Provider). */
   private static boolean isProvider(Key<?> key) {
     return key.getTypeLiteral().getRawType().equals(Provider.class);
@@ -440,10 +712,10 @@ final class InjectorImpl implements Injector, Lookups {
   <T> void initializeJitBinding(BindingImpl<T> binding, Errors errors) throws ErrorsException {
     // Put the partially constructed binding in the map a little early. This enables us to handle
     // circular dependencies. Example: FooImpl -> BarImpl -> FooImpl.
-    // Note: We don't need to synchronize on state.lock() during injector creation.
+    // Note: Only this thread sees the binding until the creation is published.
     if (binding instanceof ConstructorBindingImpl<?>) {
       Key<T> key = binding.getKey();
-      jitBindings.put(key, binding);
+      putJitBinding(key, binding);
       boolean successful = false;
       ConstructorBindingImpl cb = (ConstructorBindingImpl)binding;
       try {
@@ -474,7 +746,7 @@ final class InjectorImpl implements Injector, Lookups {
       Key<?> depKey = dep.getKey();
       InjectionPoint ip = dep.getInjectionPoint();
       if(encountered.add(depKey)) { // only check if we haven't looked at this key yet
-        BindingImpl depBinding = jitBindings.get(depKey);
+        BindingImpl depBinding = getCreatingJitBindingThisLevel(depKey);
         if(depBinding != null) { // if the binding still exists, validate
           boolean failed = cleanup(depBinding, encountered); // if children fail, we fail
           if(depBinding instanceof ConstructorBindingImpl) {
@@ -488,9 +760,9 @@ final class InjectorImpl implements Injector, Lookups {
             removeFailedJitBinding(depKey, ip);
             bindingFailed = true;
           }
-        } else if(state.getExplicitBinding(depKey) == null) {
-          // ignore keys if they were explicitly bound, but if neither JIT
-          // nor explicit, it's also invalid & should let parent know.
+        } else if(isFailedJitKey(depKey)) {
+          // ignore keys that are explicitly bound, bound in a parent or that
+          // were evicted, but if the binding failed, let parent know.
           bindingFailed = true;
         }
       }
@@ -498,9 +770,33 @@ final class InjectorImpl implements Injector, Lookups {
     return bindingFailed;
   }
 
+  /** Returns the binding for {@code key} created for this injector by the ongoing creation. */
+  private BindingImpl<?> getCreatingJitBindingThisLevel(Key<?> key) {
+    JitCreation.Level level = jitCreations.get().getLevel(this);
+    return level != null ? level.bindings.get(key) : null;
+  }
+
+  /** Returns true if the binding for {@code key} failed during the ongoing creation. */
+  private boolean isFailedJitKey(Key<?> key) {
+    JitCreation creation = jitCreations.get();
+    for (InjectorImpl injector = this; injector != null; injector = injector.parent) {
+      JitCreation.Level level = creation.getLevel(injector);
+      if (level != null && level.failedKeys.contains(key)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
   /** Cleans up any state that may have been cached when constructing the JIT binding. */
   private void removeFailedJitBinding(Key<?> key, InjectionPoint ip) {
-    jitBindings.remove(key);
+    JitCreation.Level level = jitCreations.get().level(this);
+    BindingImpl<?> binding = level.bindings.remove(key);
+    if (binding != null) {
+      level.failedBindings.add(binding);
+    }
+    level.evictableKeys.remove(key);
+    level.failedKeys.add(key);
     membersInjectorStore.remove(key.getTypeLiteral());
     if(ip != null) {
       constructors.remove(ip);
@@ -556,7 +852,7 @@ final class InjectorImpl implements Injector, Lookups {
     ProvidedJustInTimeBy providedJustInTimeBy = rawType.getAnnotation(ProvidedJustInTimeBy.class);
     if (providedJustInTimeBy != null) {
       Annotations.checkForMisplacedScopeAnnotations(rawType, source, errors);
-      return createProvidedJustInTimeByBinding(key, providedJustInTimeBy, errors);
+      return createProvidedJustInTimeByBinding(key, errors);
     }
 
 
@@ -614,19 +910,26 @@ final class InjectorImpl implements Injector, Lookups {
     InternalFactory<T> internalFactory = new InternalFactory<T>() {
       public T get(Errors errors, InternalContext context, Dependency dependency, boolean linked)
           throws ErrorsException {
-        errors = errors.withSource(providerKey);
-        Provider<?> provider = providerBinding.getInternalFactory().get(
-            errors, context, dependency, true);
+        int numErrorsBefore = errors.size();
+        Provider<?> provider;
+        try {
+          provider = providerBinding.getInternalFactory().get(errors, context, dependency, true);
+        } catch (ErrorsException e) {
+          throw errors.merge(e.getErrors()).toException();
+        } finally {
+          errors.addSourceToNewMessages(numErrorsBefore, providerKey);
+        }
         try {
           Object o = provider.get();
           if (o != null && !rawType.isInstance(o)) {
-            throw errors.subtypeNotProvided(providerType, rawType).toException();
+            throw errors.withSource(providerKey).subtypeNotProvided(providerType, rawType)
+                .toException();
           }
           @SuppressWarnings("unchecked") // protected by isInstance() check above
           T t = (T) o;
           return t;
         } catch (RuntimeException e) {
-          throw errors.errorInProvider(e).toException();
+          throw errors.withSource(providerKey).errorInProvider(e).toException();
         }
       }
     };
@@ -668,8 +971,14 @@ final class InjectorImpl implements Injector, Lookups {
     InternalFactory<T> internalFactory = new InternalFactory<T>() {
       public T get(Errors errors, InternalContext context, Dependency<?> dependency, boolean linked)
           throws ErrorsException {
-        return targetBinding.getInternalFactory().get(
-            errors.withSource(targetKey), context, dependency, true);
+        int numErrorsBefore = errors.size();
+        try {
+          return targetBinding.getInternalFactory().get(errors, context, dependency, true);
+        } catch (ErrorsException e) {
+          throw errors.merge(e.getErrors()).toException();
+        } finally {
+          errors.addSourceToNewMessages(numErrorsBefore, targetKey);
+        }
       }
     };
 
@@ -683,41 +992,34 @@ final class InjectorImpl implements Injector, Lookups {
         targetKey);
   }
 
-  /** Creates a binding for a type annotated with @ProvidedJustInTimeBy. */
-  private <T> BindingImpl<T> createProvidedJustInTimeByBinding(Key<T> key,
-      ProvidedJustInTimeBy providedJustInTimeBy, Errors errors)
+  /**
+   * Creates a binding for a type annotated with @ProvidedJustInTimeBy. All the keys of the type
+   * share the type's analysis, and its just-in-time provider unless caching just-in-time providers
+   * is disabled.
+   */
+  private <T> BindingImpl<T> createProvidedJustInTimeByBinding(Key<T> key, Errors errors)
       throws ErrorsException {
     Class<?> rawType = key.getTypeLiteral().getRawType();
-    Class<? extends JitProvider<?>> jitProviderType = providedJustInTimeBy.value();
+    JitAnnotatedType jitAnnotatedType = JitAnnotatedType.get(rawType);
 
     // Make sure it's not the same type. TODO: Can we check for deeper cycles?
-    if (jitProviderType == rawType) {
+    if (jitAnnotatedType.isRecursive()) {
       throw errors.recursiveJitProviderType().toException();
     }
 
-    // Assume the provider provides an appropriate type. We check before returning.
+    // Assume the provider provides an appropriate type.
     @SuppressWarnings("unchecked")
-    Key<JitProvider<T>> jitProviderKey = (Key<JitProvider<T>>) Key.get(jitProviderType);
-
-    Object source = rawType;
-    JitBindingImpl<T> jitBinding = new LinkedJitProviderBinding<T>(source, key, jitProviderKey);
-    JitProvider<? extends T> jitProvider = jitBinding.getJitProvider(this, errors);
-
-    // Make sure the just-in-time provider can provide instances of this key.
-    if (!jitBinding.canProvide(key)) {
-      throw errors.jitAnnotatedTypeCannotBeProvidedByJitProvider().toException();
-    }
+    JitBindingImpl<T> jitBinding = (JitBindingImpl<T>) jitAnnotatedType.getJitBinding();
+    JitProviderReference<T> jitProvider = getJitProviderReference(jitBinding, errors);
 
-    Class<? extends Annotation> scopeAnnotation =
-        Annotations.findScopeAnnotation(errors, rawType);
-    Scoping scoping = scopeAnnotation == null ?
-        Scoping.UNSCOPED : Scoping.forAnnotation(scopeAnnotation);
+    errors.merge(jitAnnotatedType.getScopingErrors());
     return createCustomJustInTimeBinding(
         key,
+        jitBinding,
         jitProvider,
-        source,
+        rawType,
         errors,
-        scoping);
+        jitAnnotatedType.getScoping());
   }
 
   /**
@@ -726,8 +1028,9 @@ final class InjectorImpl implements Injector, Lookups {
    */
   private <T> BindingImpl<T> createJustInTimeBindingRecursive(Key<T> key, Errors errors, JitLimitation jitType)
       throws ErrorsException {
-    // ask the parent to create the JIT binding
-    if (parent != null && !parent.options.jitDisabled) {
+    // ask the parent to create the JIT binding, unless no ancestor can
+    if (parent != null && !parent.options.jitDisabled
+        && parent.mayCreateJustInTimeBinding(key, jitType)) {
       try {
         return parent.createJustInTimeBindingRecursive(key, new Errors(), jitType);
       } catch (ErrorsException ignored) {
@@ -740,10 +1043,59 @@ final class InjectorImpl implements Injector, Lookups {
 
     BindingImpl<T> binding = createJustInTimeBinding(key, errors, jitType);
     state.parent().blacklist(key);
-    jitBindings.put(key, binding);
+    putJitBinding(key, binding);
     return binding;
   }
 
+  /**
+   * Returns false if neither this injector nor any of its ancestors can create a just-in-time
+   * binding for {@code key}. This lets child injectors skip their ancestors without having them
+   * fail, in particular for annotated keys only provided by the child's just-in-time providers.
+   * Returns true if they might, in which case creating the binding may still fail.
+   */
+  private boolean mayCreateJustInTimeBinding(Key<?> key, JitLimitation jitType) {
+    // blacklisting a key also blacklists it on all ancestors
+    if (state.isBlacklisted(key)) {
+      return false;
+    }
+
+    if (key.getAnnotationType() == null || isProvider(key) || isMembersInjector(key)
+        || state.getExplicitBinding(key.ofType(STRING_TYPE)) != null) {
+      return true;
+    }
+
+    if (key.hasAttributes()) {
+      Key<?> withoutAttributes = key.withoutAttributes();
+      if (state.getExplicitBinding(withoutAttributes) != null
+          || state.getExplicitBinding(withoutAttributes.ofType(STRING_TYPE)) != null) {
+        return true;
+      }
+      if (getPublishedJitBinding(withoutAttributes) != null
+          || getCreatingJitBinding(jitCreations.get(), withoutAttributes) != null) {
+        return true;
+      }
+    }
+
+    if (JitProvider.class.isAssignableFrom(key.getTypeLiteral().getRawType())
+        || jitType == JitLimitation.NO_USER_DEFINED_JIT) {
+      return false;
+    }
+    for (JitBindingImpl<?> jitBinding : state.getInheritedJitBindingCandidates(key)) {
+      if (jitBinding.canProvide(key)) {
+        return true;
+      }
+    }
+    Key<?> instanceKey = getFutureInstanceKey(key);
+    if (instanceKey != null) {
+      for (JitBindingImpl<?> jitBinding : state.getInheritedJitBindingCandidates(instanceKey)) {
+        if (jitBinding.canProvide(instanceKey)) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
   /**
    * Returns a new just-in-time binding created by resolving {@code key}. The strategies used to
    * create just-in-time bindings are:
@@ -755,6 +1107,10 @@ final class InjectorImpl implements Injector, Lookups {
    *   <li>The constructor of the raw type. Only for unannotated keys.
    * </ol>
    *
+   * <p>This runs while holding the lock of {@code key}, which other threads needing a binding for
+   * it wait for. Threads creating bindings for other keys proceed in parallel. Just-in-time
+   * providers are obtained later, when the binding first provides an instance.
+   *
    * @throws com.google.inject.internal.ErrorsException if the binding cannot be created.
    */
   private <T> BindingImpl<T> createJustInTimeBinding(Key<T> key, Errors errors, JitLimitation jitType)
@@ -814,14 +1170,30 @@ final class InjectorImpl implements Injector, Lookups {
        * determine whether it could be provided or not, allowing jit providers
        * to be provided just-in-time would create an infinite loop.
        */
-      for (JitBindingImpl<?> jitBinding : state.getJitBindingsThisLevel()) {
+      long start = jitProviderListeners.isEmpty() ? 0 : System.nanoTime();
+      JitBindingImpl<?> matchingJitBinding = null;
+      for (JitBindingImpl<?> jitBinding : state.getJitBindingCandidatesThisLevel(key)) {
         if (jitBinding.canProvide(key)) {
-          @SuppressWarnings("unchecked")
-          JitProvider<T> jitProvider = (JitProvider<T>) jitBinding.getJitProvider(this, errors);
-          return createCustomJustInTimeBinding(key, jitProvider,
-              source, errors, jitBinding.getScoping());
+          matchingJitBinding = jitBinding;
+          break;
         }
       }
+      if (!jitProviderListeners.isEmpty()) {
+        jitProviderListeners.onLookup(errors, key, matchingJitBinding, System.nanoTime() - start);
+      }
+
+      if (matchingJitBinding != null) {
+        @SuppressWarnings("unchecked")
+        JitProviderReference<T> jitProvider =
+            getJitProviderReference((JitBindingImpl<T>) matchingJitBinding, errors);
+        return createCustomJustInTimeBinding(key, matchingJitBinding, jitProvider,
+            source, errors, matchingJitBinding.getScoping());
+      }
+
+      BindingImpl<T> futureBinding = createFutureJustInTimeBinding(key, source, errors);
+      if (futureBinding != null) {
+        return futureBinding;
+      }
     }
     
     if (failIfNoJitBinding) {
@@ -834,22 +1206,115 @@ final class InjectorImpl implements Injector, Lookups {
     return binding;
   }
 
+  /**
+   * Returns the just-in-time provider of {@code jitBinding}. It is shared by all the keys the
+   * binding provides, unless caching just-in-time providers is disabled.
+   */
+  private <T> JitProviderReference<T> getJitProviderReference(
+      JitBindingImpl<T> jitBinding, Errors errors) throws ErrorsException {
+    if (!options.cacheJitProviders) {
+      return new JitProviderReference<T>(
+          this, jitBinding.getKey(), jitBinding.resolveJitProvider(this, errors));
+    }
+
+    JitProviderReference<?> jitProvider;
+    synchronized (root.jitBindingsLock) {
+      jitProvider = jitProviders.get(jitBinding);
+    }
+    if (jitProvider == null) {
+      // resolving may create bindings, so it's done without the lock
+      JitProviderReference<T> resolved = new JitProviderReference<T>(
+          this, jitBinding.getKey(), jitBinding.resolveJitProvider(this, errors));
+      synchronized (root.jitBindingsLock) {
+        jitProvider = jitProviders.get(jitBinding);
+        if (jitProvider == null) {
+          jitProvider = resolved;
+          jitProviders.put(jitBinding, resolved);
+        }
+      }
+    }
+    @SuppressWarnings("unchecked") // we only store references matching their binding
+    JitProviderReference<T> result = (JitProviderReference<T>) jitProvider;
+    return result;
+  }
+
+  /**
+   * Returns a binding for {@code Future<X>} if a just-in-time provider registered at this level can
+   * provide {@code X} with the same annotation, or null. The binding uses {@link
+   * com.google.inject.AsyncJitProvider#getAsync} if the provider is asynchronous, and the binding
+   * of {@code X} otherwise. It isn't scoped itself, so that scoped instances are shared with
+   * {@code X}.
+   */
+  private <T> BindingImpl<T> createFutureJustInTimeBinding(Key<T> key, Object source, Errors errors)
+      throws ErrorsException {
+    Key<?> instanceKey = getFutureInstanceKey(key);
+    if (instanceKey == null) {
+      return null;
+    }
+
+    for (JitBindingImpl<?> jitBinding : state.getJitBindingCandidatesThisLevel(instanceKey)) {
+      if (jitBinding.canProvide(instanceKey)) {
+        // T is Future<X>, and X is provided by the jit provider
+        @SuppressWarnings("unchecked")
+        BindingImpl<T> binding = (BindingImpl<T>) createFutureJustInTimeBinding(
+            (Key) key, (Key) instanceKey, (JitBindingImpl) jitBinding, source, errors);
+        return binding;
+      }
+    }
+    return null;
+  }
+
+  private <T> BindingImpl<Future<T>> createFutureJustInTimeBinding(Key<Future<T>> key,
+      Key<T> instanceKey, JitBindingImpl<T> jitBinding, Object source, Errors errors)
+      throws ErrorsException {
+    BindingImpl<T> instanceBinding =
+        getBindingOrThrow(instanceKey, errors, JitLimitation.NEW_OR_EXISTING_JIT);
+    AsyncJitProviderFactory<T> factory = new AsyncJitProviderFactory<T>(instanceKey, jitBinding,
+        getJitProviderReference(jitBinding, errors), instanceBinding, source,
+        jitProviderListeners);
+    return createJitProviderBinding(key, factory, factory, source, errors, Scoping.UNSCOPED);
+  }
+
+  /** Returns the key of {@code X} if {@code key} is a key of {@code Future<X>}, or null. */
+  private static Key<?> getFutureInstanceKey(Key<?> key) {
+    Type type = key.getTypeLiteral().getType();
+    if (key.getTypeLiteral().getRawType() != Future.class
+        || !(type instanceof ParameterizedType)) {
+      return null;
+    }
+
+    Type instanceType = ((ParameterizedType) type).getActualTypeArguments()[0];
+    if (instanceType instanceof Class<?> || instanceType instanceof ParameterizedType
+        || instanceType instanceof GenericArrayType) {
+      return key.ofType(instanceType);
+    }
+    return null;
+  }
+
+  /**
+   * Creates a binding backed by a just-in-time provider. The provider itself is only obtained when
+   * the binding first provides an instance, so that creating the binding doesn't run its code.
+   */
   private <T> BindingImpl<T> createCustomJustInTimeBinding(
-      final Key<T> key, final JitProvider<? extends T> jitProvider,
+      Key<T> key, JitBinding<?> jitBinding, JitProviderReference<? extends T> jitProvider,
       Object source, Errors errors, Scoping scoping) {
-    Provider<T> provider = new Provider<T>() {
-      @SuppressWarnings("unchecked")
-      public T get() {
-        return jitProvider.get((Key) key);
-      }
-    };
-    Initializable<Provider<? extends T>> initializable = Initializables
-        .<Provider<? extends T>>of(provider);
-    InternalFactory<T> factory = new InternalFactoryToProviderAdapter<T>(initializable, source);
+    JitProviderFactory<T> factory = new JitProviderFactory<T>(
+        this, key, jitBinding, jitProvider, source, jitProviderListeners);
+    return createJitProviderBinding(key, factory, factory, source, errors, scoping);
+  }
+
+  private <T> BindingImpl<T> createJitProviderBinding(Key<T> key, InternalFactory<T> factory,
+      Provider<T> provider, Object source, Errors errors, Scoping scoping) {
     Scoping injectableScoping =
         Scoping.makeInjectable(scoping, this, errors);
     InternalFactory<? extends T> scopedFactory =
         Scoping.scope(key, this, factory, source, injectableScoping);
+    // unscoped bindings can be created anew without anyone noticing, so they may be evicted
+    JitCreation creation = jitCreations.get();
+    if (creation != null && options.maximumJitProviderBindings != Integer.MAX_VALUE
+        && injectableScoping.isNoScope()) {
+      creation.level(this).evictableKeys.add(key);
+    }
     return new ProviderInstanceBindingImpl<T>(
         this, key, source, scopedFactory, injectableScoping, provider,
         ImmutableSet.<InjectionPoint>of());
@@ -865,12 +1330,10 @@ final class InjectorImpl implements Injector, Lookups {
   }
 
   public Map<Key<?>, Binding<?>> getAllBindings() {
-    synchronized (state.lock()) {
-      return new ImmutableMap.Builder<Key<?>, Binding<?>>()
-          .putAll(state.getExplicitBindingsThisLevel())
-          .putAll(jitBindings)
-          .build();
-    }
+    return new ImmutableMap.Builder<Key<?>, Binding<?>>()
+        .putAll(state.getExplicitBindingsThisLevel())
+        .putAll(jitBindings)
+        .build();
   }
 
   public Map<Class<? extends Annotation>, Scope> getScopeBindings() {
@@ -941,6 +1404,9 @@ final class InjectorImpl implements Injector, Lookups {
   /** Cached field and method injectors for each type. */
   MembersInjectorStore membersInjectorStore;
 
+  /** Listeners of this injector's just-in-time providers, including its ancestors' listeners. */
+  JitProviderListeners jitProviderListeners = JitProviderListeners.NONE;
+
   @SuppressWarnings("unchecked") // the members injector type is consistent with instance's type
   public void injectMembers(Object instance) {
     MembersInjector membersInjector = getMembersInjector(instance.getClass());
@@ -961,33 +1427,39 @@ final class InjectorImpl implements Injector, Lookups {
   }
 
   public <T> Provider<T> getProvider(Class<T> type) {
-    return getProvider(Key.get(type));
+    @SuppressWarnings("unchecked") // we only store providers of their key's type
+    Provider<T> provider = (Provider<T>) providers.get(type);
+    return provider != null ? provider : getProvider(Key.get(type), type);
   }
 
   <T> Provider<T> getProviderOrThrow(final Key<T> key, Errors errors) throws ErrorsException {
+    return createProvider(key, getInternalFactory(key, errors, JitLimitation.NO_JIT));
+  }
 
-
-    final InternalFactory<? extends T> factory = getInternalFactory(key, errors, JitLimitation.NO_JIT);
+  private <T> Provider<T> createProvider(Key<T> key, final InternalFactory<? extends T> factory) {
     final Dependency<T> dependency = Dependency.get(key);
 
     return new Provider<T>() {
       public T get() {
-        final Errors errors = new Errors(dependency);
+        // like callInContext(), without allocating a callable
+        InternalContext context = localContext.get();
+        boolean outermost = context.enter();
+        Errors errors = context.getErrors();
+        int numErrorsBefore = errors.size();
+        Dependency previous = context.setDependency(dependency);
         try {
-          T t = callInContext(new ContextualCallable<T>() {
-            public T call(InternalContext context) throws ErrorsException {
-              Dependency previous = context.setDependency(dependency);
-              try {
-                return factory.get(errors, context, dependency, false);
-              } finally {
-                context.setDependency(previous);
-              }
-            }
-          });
-          errors.throwIfNewErrors(0);
+          T t = factory.get(errors, context, dependency, false);
+          errors.throwIfNewErrors(numErrorsBefore);
           return t;
         } catch (ErrorsException e) {
-          throw new ProvisionException(errors.merge(e.getErrors()).getMessages());
+          errors.merge(e.getErrors()).addSourceToNewMessages(numErrorsBefore, dependency);
+          throw new ProvisionException(errors.removeNewMessages(numErrorsBefore));
+        } finally {
+          errors.removeNewMessages(numErrorsBefore);
+          context.setDependency(previous);
+          if (outermost) {
+            context.exit();
+          }
         }
       }
 
@@ -998,16 +1470,50 @@ final class InjectorImpl implements Injector, Lookups {
   }
 
   public <T> Provider<T> getProvider(final Key<T> key) {
+    @SuppressWarnings("unchecked") // we only store providers of their key
+    Provider<T> provider = (Provider<T>) providers.get(key);
+    return provider != null ? provider : getProvider(key, key);
+  }
+
+  /**
+   * Creates the provider of {@code key}, and caches it under {@code cacheKey} once its binding is
+   * complete and if the binding cannot be evicted.
+   */
+  private <T> Provider<T> getProvider(Key<T> key, Object cacheKey) {
     Errors errors = new Errors(key);
     try {
-      Provider<T> result = getProviderOrThrow(key, errors);
+      BindingImpl<T> binding = getBindingOrThrow(key, errors, JitLimitation.NO_JIT);
       errors.throwIfNewErrors(0);
+      Provider<T> result = createProvider(key, binding.getInternalFactory());
+      // bindings created within an ongoing just-in-time creation may still be removed if it fails
+      if (jitCreations.get() == null && !isEvictable(binding)) {
+        providers.put(cacheKey, result);
+      }
       return result;
     } catch (ErrorsException e) {
       throw new ConfigurationException(errors.merge(e.getErrors()).getMessages());
     }
   }
 
+  /**
+   * Returns true if {@code binding} may be evicted from its injector's just-in-time bindings, or
+   * already was. Only the unscoped bindings created by just-in-time providers are tracked for
+   * eviction, and only if the injector limits their number.
+   */
+  private static boolean isEvictable(BindingImpl<?> binding) {
+    InjectorImpl injector = binding.getInjector();
+    if (injector == null || injector.options.maximumJitProviderBindings == Integer.MAX_VALUE) {
+      return false;
+    }
+
+    Key<?> key = binding.getKey();
+    synchronized (injector.root.jitBindingsLock) {
+      return injector.evictableJitKeys.contains(key)
+          || (injector.jitBindings.get(key) != binding
+              && injector.state.getExplicitBinding(key) != binding);
+    }
+  }
+
   public <T> T getInstance(Key<T> key) {
     return getProvider(key).get();
   }
@@ -1016,22 +1522,19 @@ final class InjectorImpl implements Injector, Lookups {
     return getProvider(type).get();
   }
 
-  final ThreadLocal<Object[]> localContext;
+  final ThreadLocal<InternalContext> localContext;
 
-  /** Looks up thread local context. Creates (and removes) a new context if necessary. */
+  /** Looks up thread local context. Resets the context once done if this call is the outermost. */
   <T> T callInContext(ContextualCallable<T> callable) throws ErrorsException {
-    Object[] reference = localContext.get();
-    if (reference[0] == null) {
-      reference[0] = new InternalContext();
-      try {
-        return callable.call((InternalContext)reference[0]);
-      } finally {
-        // Only clear the context if this call created it.
-        reference[0] = null;
+    InternalContext context = localContext.get();
+    boolean outermost = context.enter();
+    try {
+      return callable.call(context);
+    } finally {
+      // Someone else will reset this context if this call isn't the outermost.
+      if (outermost) {
+        context.exit();
       }
-    } else {
-      // Someone else will clean up this context.
-      return callable.call((InternalContext)reference[0]);
     }
   }
 
@@ -150,6 +150,11 @@ final class InjectorShell {
       injector.membersInjectorStore = new MembersInjectorStore(injector, listenerBindings);
       stopwatch.resetAndLog("TypeListeners creation");
 
+      new JitProviderListenerBindingProcessor(errors).process(injector, elements);
+      injector.jitProviderListeners
+          = new JitProviderListeners(injector.state.getJitProviderListenerBindings());
+      stopwatch.resetAndLog("JitProviderListeners creation");
+
       new ScopeBindingProcessor(errors).process(injector, elements);
       stopwatch.resetAndLog("Scopes creation");
 
@@ -17,36 +17,111 @@
 package com.google.inject.internal;
 
 import com.google.inject.spi.Dependency;
-import java.util.Map;
 
 /**
  * Internal context. Used to coordinate injections and support circular
  * dependencies.
  *
+ * <p>Each thread reuses a single context, which is reset once the outermost provision completes.
+ * Constructions in progress are kept in a stack, since they complete in the reverse order they
+ * start. The stack's construction contexts are reused by later constructions.
+ *
+ * <p>Provisions share the context's errors object, and only add sources to errors once something
+ * fails, so that successful provisions allocate no {@link Errors}.
+ *
  * @author crazybob@google.com (Bob Lee)
  */
 final class InternalContext {
 
-  private Map<Object, ConstructionContext<?>> constructionContexts = Maps.newHashMap();
+  private static final int INITIAL_CONSTRUCTIONS = 8;
+
+  /** The keys of the constructions in progress, innermost last. */
+  private Object[] constructionKeys = new Object[INITIAL_CONSTRUCTIONS];
+  /** The contexts of the constructions in progress, followed by contexts to reuse. */
+  private ConstructionContext<?>[] constructionContexts
+      = new ConstructionContext<?>[INITIAL_CONSTRUCTIONS];
+  private int constructions;
   private Dependency dependency;
+  private boolean active;
+  /** Collects the errors of this thread's provisions, which remove them once done. */
+  private final Errors errors = new Errors();
+
+  /**
+   * Starts using this context. Returns true if this is the outermost use, which must then call
+   * {@link #exit} once done.
+   */
+  boolean enter() {
+    if (active) {
+      return false;
+    }
+    active = true;
+    return true;
+  }
+
+  /** Resets this context so that the thread can reuse it. */
+  void exit() {
+    for (int i = 0; i < constructions; i++) {
+      constructionKeys[i] = null;
+    }
+    constructions = 0;
+    dependency = null;
+    errors.removeNewMessages(0);
+    active = false;
+  }
 
+  /**
+   * Returns the context of the construction in progress for {@code key}, or starts a construction
+   * if there is none. A started construction must be ended with {@link #endConstruction}.
+   */
   @SuppressWarnings("unchecked")
   public <T> ConstructionContext<T> getConstructionContext(Object key) {
+    for (int i = constructions - 1; i >= 0; i--) {
+      if (constructionKeys[i] == key) {
+        return (ConstructionContext<T>) constructionContexts[i];
+      }
+    }
+
+    if (constructions == constructionKeys.length) {
+      Object[] keys = new Object[constructions * 2];
+      System.arraycopy(constructionKeys, 0, keys, 0, constructions);
+      constructionKeys = keys;
+      ConstructionContext<?>[] contexts = new ConstructionContext<?>[constructions * 2];
+      System.arraycopy(constructionContexts, 0, contexts, 0, constructions);
+      constructionContexts = contexts;
+    }
     ConstructionContext<T> constructionContext
-        = (ConstructionContext<T>) constructionContexts.get(key);
+        = (ConstructionContext<T>) constructionContexts[constructions];
     if (constructionContext == null) {
       constructionContext = new ConstructionContext<T>();
-      constructionContexts.put(key, constructionContext);
+      constructionContexts[constructions] = constructionContext;
     }
+    constructionKeys[constructions++] = key;
     return constructionContext;
   }
 
+  /** Ends the innermost construction, which must be the one for {@code key}. */
+  public void endConstruction(Object key) {
+    if (constructions == 0 || constructionKeys[constructions - 1] != key) {
+      throw new IllegalStateException("Construction of " + key + " is not the innermost one.");
+    }
+    constructionKeys[--constructions] = null;
+  }
+
+  /**
+   * Returns the errors of this thread's provisions. Each provision notes their {@link
+   * Errors#size} beforehand, and removes the messages it added with {@link
+   * Errors#removeNewMessages} once done.
+   */
+  public Errors getErrors() {
+    return errors;
+  }
+
   public Dependency getDependency() {
     return dependency;
   }
 
   public Dependency setDependency(Dependency dependency) {
-    Dependency previous = dependency;
+    Dependency previous = this.dependency;
     this.dependency = dependency;
     return previous;
   }
@@ -18,9 +18,14 @@ package com.google.inject.internal;
 
 import java.lang.annotation.Annotation;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 import com.google.inject.Binding;
 import com.google.inject.Injector;
@@ -28,10 +33,13 @@ import com.google.inject.Key;
 import com.google.inject.MembersInjector;
 import com.google.inject.Module;
 import com.google.inject.Provider;
+import com.google.inject.ProvisionException;
 import com.google.inject.Scope;
 import com.google.inject.Stage;
 import com.google.inject.TypeLiteral;
 import com.google.inject.spi.Dependency;
+import com.google.inject.spi.HasDependencies;
+import com.google.inject.spi.ProviderInstanceBinding;
 
 /**
  * Builds a tree of injectors. This is a primary injector, plus child injectors needed for each
@@ -54,6 +62,8 @@ import com.google.inject.spi.Dependency;
  */
 public final class InternalInjectorCreator {
 
+  private static final Logger logger = Logger.getLogger(InternalInjectorCreator.class.getName());
+
   private final Stopwatch stopwatch = new Stopwatch();
   private final Errors errors = new Errors();
 
@@ -68,11 +78,33 @@ public final class InternalInjectorCreator {
     final Stage stage;
     final boolean jitDisabled;
     final boolean allowCircularProxy;
-
-    public InjectorOptions(Stage stage, boolean jitDisabled, boolean allowCircularProxy) {
+    final int maximumJitProviderBindings;
+    final boolean warmUpJitBindings;
+    final boolean cacheJitProviders;
+    final boolean generateInjectors;
+    final boolean useMethodHandles;
+    /** Loads eager singletons in parallel if non-null. */
+    final Executor preloadExecutor;
+    /** Loads eager singletons after the injector is built if non-null. */
+    final Executor warmUpExecutor;
+    /** The order of singletons to warm up, or null for binding order. */
+    final Comparator<? super Key<?>> warmUpOrder;
+
+    public InjectorOptions(Stage stage, boolean jitDisabled, boolean allowCircularProxy,
+        int maximumJitProviderBindings, boolean warmUpJitBindings, boolean cacheJitProviders,
+        boolean generateInjectors, boolean useMethodHandles, Executor preloadExecutor,
+        Executor warmUpExecutor, Comparator<? super Key<?>> warmUpOrder) {
       this.stage = stage;
       this.jitDisabled = jitDisabled;
       this.allowCircularProxy = allowCircularProxy;
+      this.maximumJitProviderBindings = maximumJitProviderBindings;
+      this.warmUpJitBindings = warmUpJitBindings;
+      this.cacheJitProviders = cacheJitProviders;
+      this.generateInjectors = generateInjectors;
+      this.useMethodHandles = useMethodHandles;
+      this.preloadExecutor = preloadExecutor;
+      this.warmUpExecutor = warmUpExecutor;
+      this.warmUpOrder = warmUpOrder;
     }
   }
 
@@ -108,7 +140,8 @@ public final class InternalInjectorCreator {
     }
 
     // Synchronize while we're building up the bindings and other injector state. This ensures that
-    // the JIT bindings in the parent injector don't change while we're being built
+    // no other injector of the hierarchy is built concurrently. Just-in-time bindings are created
+    // under the locks of their keys instead, so other threads may still add them to the parent
     synchronized (shellBuilder.lock()) {
       shells = shellBuilder.build(bindingProcesor, stopwatch, errors);
       stopwatch.resetAndLog("Injector construction");
@@ -184,48 +217,159 @@ public final class InternalInjectorCreator {
     stopwatch.resetAndLog("Instance injection");
     errors.throwCreationExceptionIfErrorsExist();
 
-    if(shellBuilder.getInjectorOptions().stage != Stage.TOOL) {
+    InjectorOptions options = shellBuilder.getInjectorOptions();
+    if (options.warmUpJitBindings && options.stage == Stage.PRODUCTION) {
       for (InjectorShell shell : shells) {
-        loadEagerSingletons(shell.getInjector(), shellBuilder.getInjectorOptions().stage, errors);
+        warmUpJitBindings(shell.getInjector(), errors);
+      }
+      stopwatch.resetAndLog("Just-in-time binding warm-up");
+      errors.throwCreationExceptionIfErrorsExist();
+    }
+
+    if(shellBuilder.getInjectorOptions().stage != Stage.TOOL) {
+      if (options.warmUpExecutor != null) {
+        for (InjectorShell shell : shells) {
+          warmUpSingletons(shell.getInjector(), options);
+        }
+        stopwatch.resetAndLog("Scheduling singleton warm-up");
+      } else {
+        for (InjectorShell shell : shells) {
+          loadEagerSingletons(shell.getInjector(), shellBuilder.getInjectorOptions().stage,
+              options.preloadExecutor, errors);
+        }
+        stopwatch.resetAndLog("Preloading singletons");
       }
-      stopwatch.resetAndLog("Preloading singletons");
     }
     errors.throwCreationExceptionIfErrorsExist();
   }
 
+  /**
+   * Creates the just-in-time bindings reachable from the bindings of {@code injector}, and obtains
+   * the just-in-time providers backing them. Dependencies are resolved as injecting them would, so
+   * no just-in-time bindings are created if explicit bindings are required, and dependencies that
+   * can't be resolved are skipped. Singletons among these bindings are then loaded with
+   * the other eager singletons.
+   */
+  private void warmUpJitBindings(InjectorImpl injector, Errors errors) {
+    List<Binding<?>> pending = Lists.newArrayList();
+    pending.addAll(injector.state.getExplicitBindingsThisLevel().values());
+    pending.addAll(injector.jitBindings.values());
+
+    Set<Key<?>> visited = Sets.newHashSet();
+    while (!pending.isEmpty()) {
+      Binding<?> binding = pending.remove(pending.size() - 1);
+      if (!visited.add(binding.getKey())) {
+        continue;
+      }
+
+      if (binding instanceof ProviderInstanceBinding<?>) {
+        Provider<?> provider = ((ProviderInstanceBinding<?>) binding).getProviderInstance();
+        if (provider instanceof JitProviderFactory<?>) {
+          ((JitProviderFactory<?>) provider).warmUp(errors);
+        }
+      }
+
+      if (binding instanceof HasDependencies) {
+        for (Dependency<?> dependency : ((HasDependencies) binding).getDependencies()) {
+          if (visited.contains(dependency.getKey())) {
+            continue;
+          }
+          try {
+            pending.add(injector.getBindingOrThrow(dependency.getKey(), new Errors(),
+                InjectorImpl.JitLimitation.NO_JIT));
+          } catch (ErrorsException e) {
+            // reported if the dependency is ever injected
+          }
+        }
+      }
+    }
+  }
+
   /**
    * Loads eager singletons, or all singletons if we're in Stage.PRODUCTION. Bindings discovered
-   * while we're binding these singletons are not be eager.
+   * while we're binding these singletons are not be eager. If {@code executor} is non-null, the
+   * singletons are loaded in parallel on it.
+   */
+  void loadEagerSingletons(InjectorImpl injector, Stage stage, Executor executor, Errors errors) {
+    List<BindingImpl<?>> eagerSingletons = getEagerSingletons(injector, stage);
+    if (executor != null) {
+      new ParallelSingletonLoader(injector, executor).load(eagerSingletons, errors);
+      return;
+    }
+
+    for (BindingImpl<?> binding : eagerSingletons) {
+      loadEagerSingleton(injector, binding, errors);
+    }
+  }
+
+  /**
+   * Submits the eager singletons of {@code injector} to be loaded in the background, in the order
+   * of {@code options}. Failures are logged, and reported again if the singletons are requested.
    */
-  void loadEagerSingletons(InjectorImpl injector, Stage stage, final Errors errors) {
+  private void warmUpSingletons(final InjectorImpl injector, InjectorOptions options) {
+    List<BindingImpl<?>> eagerSingletons = getEagerSingletons(injector, options.stage);
+    if (options.warmUpOrder != null) {
+      final Comparator<? super Key<?>> order = options.warmUpOrder;
+      Collections.sort(eagerSingletons, new Comparator<BindingImpl<?>>() {
+        public int compare(BindingImpl<?> a, BindingImpl<?> b) {
+          return order.compare(a.getKey(), b.getKey());
+        }
+      });
+    }
+
+    for (final BindingImpl<?> binding : eagerSingletons) {
+      options.warmUpExecutor.execute(new Runnable() {
+        public void run() {
+          Errors errors = new Errors();
+          try {
+            loadEagerSingleton(injector, binding, errors);
+            errors.throwProvisionExceptionIfErrorsExist();
+          } catch (ProvisionException e) {
+            logger.log(Level.WARNING, "Failed to warm up singleton " + binding.getKey(), e);
+          }
+        }
+      });
+    }
+  }
+
+  /** Returns the eager singletons of {@code injector}, or all singletons in Stage.PRODUCTION. */
+  private List<BindingImpl<?>> getEagerSingletons(InjectorImpl injector, Stage stage) {
     @SuppressWarnings("unchecked") // casting Collection<Binding> to Collection<BindingImpl> is safe
     Set<BindingImpl<?>> candidateBindings = ImmutableSet.copyOf(Iterables.concat(
         (Collection) injector.state.getExplicitBindingsThisLevel().values(),
         injector.jitBindings.values()));
-    for (final BindingImpl<?> binding : candidateBindings) {
+    List<BindingImpl<?>> eagerSingletons = Lists.newArrayList();
+    for (BindingImpl<?> binding : candidateBindings) {
       if (isEagerSingleton(injector, binding, stage)) {
-        try {
-          injector.callInContext(new ContextualCallable<Void>() {
-            Dependency<?> dependency = Dependency.get(binding.getKey());
-            public Void call(InternalContext context) {
-              Dependency previous = context.setDependency(dependency);
-              Errors errorsForBinding = errors.withSource(dependency);
-              try {
-                binding.getInternalFactory().get(errorsForBinding, context, dependency, false);
-              } catch (ErrorsException e) {
-                errorsForBinding.merge(e.getErrors());
-              } finally {
-                context.setDependency(previous);
-              }
-
-              return null;
-            }
-          });
-        } catch (ErrorsException e) {
-          throw new AssertionError();
-        }
+        eagerSingletons.add(binding);
       }
     }
+    return eagerSingletons;
+  }
+
+  /** Loads the singleton bound by {@code binding}, adding failures to {@code errors}. */
+  static void loadEagerSingleton(InjectorImpl injector, final BindingImpl<?> binding,
+      final Errors errors) {
+    try {
+      injector.callInContext(new ContextualCallable<Void>() {
+        Dependency<?> dependency = Dependency.get(binding.getKey());
+        public Void call(InternalContext context) {
+          Dependency previous = context.setDependency(dependency);
+          Errors errorsForBinding = errors.withSource(dependency);
+          try {
+            binding.getInternalFactory().get(errorsForBinding, context, dependency, false);
+          } catch (ErrorsException e) {
+            errorsForBinding.merge(e.getErrors());
+          } finally {
+            context.setDependency(previous);
+          }
+
+          return null;
+        }
+      });
+    } catch (ErrorsException e) {
+      throw new AssertionError();
+    }
   }
 
   private boolean isEagerSingleton(InjectorImpl injector, BindingImpl<?> binding, Stage stage) {
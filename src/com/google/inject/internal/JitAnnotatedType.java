@@ -0,0 +1,117 @@
+/**
+ * Copyright (C) 2010 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.inject.internal;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import com.google.inject.JitProvider;
+import com.google.inject.Key;
+import com.google.inject.ProvidedJustInTimeBy;
+import com.google.inject.spi.Message;
+import com.google.inject.util.Types;
+
+/**
+ * The analysis of a class annotated with {@link ProvidedJustInTimeBy}: its just-in-time provider
+ * binding and its scoping. Analyses are cached per class and shared by all injectors, so that
+ * injectors, child injectors in particular, don't redo them for every key of the class.
+ *
+ * <p>An analysis strongly references its class through its binding, so while it is cached, its
+ * class stays loaded even though the class is only weakly referenced as a key. Analyses are softly
+ * referenced, so their classes can only be unloaded once the garbage collector clears them, which
+ * it does before running out of memory.
+ */
+final class JitAnnotatedType {
+
+  private static final Map<Class<?>, JitAnnotatedType> cache = new MapMaker()
+      .weakKeys()
+      .softValues()
+      .makeComputingMap(new Function<Class<?>, JitAnnotatedType>() {
+        public JitAnnotatedType apply(Class<?> rawType) {
+          return new JitAnnotatedType(rawType);
+        }
+      });
+
+  private final boolean recursive;
+  private final JitBindingImpl<?> jitBinding;
+  private final Scoping scoping;
+  private final List<Message> scopingErrors;
+
+  private JitAnnotatedType(Class<?> rawType) {
+    Class<? extends JitProvider<?>> jitProviderType
+        = rawType.getAnnotation(ProvidedJustInTimeBy.class).value();
+    this.recursive = jitProviderType == rawType;
+
+    // Assume the provider provides an appropriate type.
+    @SuppressWarnings("unchecked")
+    Key<JitProvider<Object>> jitProviderKey = (Key<JitProvider<Object>>) Key.get(jitProviderType);
+    @SuppressWarnings("unchecked")
+    Key<Object> key = (Key<Object>) Key.get(typeScheme(rawType));
+    this.jitBinding = new LinkedJitProviderBinding<Object>(rawType, key, jitProviderKey);
+
+    Errors errors = new Errors();
+    Class<? extends Annotation> scopeAnnotation = Annotations.findScopeAnnotation(errors, rawType);
+    this.scoping = scopeAnnotation == null
+        ? Scoping.UNSCOPED
+        : Scoping.forAnnotation(scopeAnnotation);
+    this.scopingErrors = errors.getMessages();
+  }
+
+  /**
+   * Returns the type scheme matching the keys of {@code rawType}: the class itself, or if it is
+   * generic, the class with a wildcard for each type parameter.
+   */
+  private static Type typeScheme(Class<?> rawType) {
+    int typeParameters = rawType.getTypeParameters().length;
+    if (typeParameters == 0) {
+      return rawType;
+    }
+    Type[] wildcards = new Type[typeParameters];
+    Arrays.fill(wildcards, Types.subtypeOf(Object.class));
+    return Types.newParameterizedTypeWithOwner(rawType.getEnclosingClass(), rawType, wildcards);
+  }
+
+  /** Returns the analysis of {@code rawType}, which must be annotated with ProvidedJustInTimeBy. */
+  static JitAnnotatedType get(Class<?> rawType) {
+    return cache.get(rawType);
+  }
+
+  /** Returns true if the class is its own just-in-time provider. */
+  boolean isRecursive() {
+    return recursive;
+  }
+
+  /**
+   * Returns the just-in-time provider binding of the class, the same for all its keys. Its key's
+   * type is the class, parameterized with wildcards if it is generic, so that it can provide all
+   * the parameterizations of the class.
+   */
+  JitBindingImpl<?> getJitBinding() {
+    return jitBinding;
+  }
+
+  Scoping getScoping() {
+    return scoping;
+  }
+
+  /** Returns the errors found while reading the scoping annotation of the class. */
+  List<Message> getScopingErrors() {
+    return scopingErrors;
+  }
+}
@@ -35,6 +35,8 @@ public abstract class JitBindingImpl<T> implements JitBinding<T> {
   private final Key<T> key;
   private final Object source;
   private final Type typeScheme;
+  /** Compiled when the binding is processed, or when first needed. */
+  private volatile TypeSchemeMatcher typeSchemeMatcher;
   private Scoping scoping;
 
   protected JitBindingImpl(Object source, Key<T> key) {
@@ -49,15 +51,40 @@ public abstract class JitBindingImpl<T> implements JitBinding<T> {
     if (key.hasAttributes()) {
       return Objects.equal(key.getAnnotationType(), actualKey.getAnnotationType()) &&
           Objects.equal(key.getAnnotation(), actualKey.getAnnotation()) &&
-          MoreTypes.isInstance(typeScheme, actualKey.getTypeLiteral().getType());
+          compileTypeScheme().matches(actualKey.getTypeLiteral());
     } else {
       // attributes don't have to match
       return Objects.equal(key.getAnnotationType(), actualKey.getAnnotationType()) &&
-          MoreTypes.isInstance(typeScheme, actualKey.getTypeLiteral().getType());
+          compileTypeScheme().matches(actualKey.getTypeLiteral());
     }
   }
+
+  /**
+   * Returns the matcher for keys' types, compiling it if necessary. Racing threads may compile it
+   * more than once, which is harmless.
+   */
+  TypeSchemeMatcher compileTypeScheme() {
+    TypeSchemeMatcher result = typeSchemeMatcher;
+    if (result == null) {
+      typeSchemeMatcher = result = new TypeSchemeMatcher(typeScheme);
+    }
+    return result;
+  }
   
-  public abstract JitProvider<? extends T> getJitProvider(InjectorImpl injector, Errors errors);
+  /**
+   * Resolves the dependencies of the just-in-time provider and returns a reference to it that can
+   * be initialized later, once the binding provides an instance.
+   */
+  abstract Initializable<JitProvider<? extends T>> resolveJitProvider(
+      InjectorImpl injector, Errors errors) throws ErrorsException;
+
+  public Key<T> getKey() {
+    return key;
+  }
+
+  Type getTypeScheme() {
+    return typeScheme;
+  }
 
   public void withScoping(Scoping scoping) {
     this.scoping = scoping;
@@ -0,0 +1,269 @@
+/**
+ * Copyright (C) 2010 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.inject.internal;
+
+import java.lang.reflect.GenericArrayType;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import com.google.inject.Key;
+
+/**
+ * Indexes the just-in-time bindings of a single injector level by annotation and by the raw type
+ * of their type scheme. A binding can only provide a key whose annotation type matches its own
+ * and, unless its type scheme is a type variable, a wildcard or an array, whose raw type is the raw
+ * type of the scheme. Resolving a key therefore only needs to evaluate
+ * {@link JitBindingImpl#canProvide} on a handful of candidates rather than on every registration.
+ *
+ * <p>Candidates are always returned in registration order so that the first registration able to
+ * provide a key wins, exactly as when scanning every registration.
+ *
+ * <p>Registrations whose type scheme is an exact type, like {@code List<String>}, serve a single key
+ * or a single annotation type. The registration winning each such key is determined once, so that
+ * looking it up is a single hash lookup. This also finds the registrations that can never win
+ * because an earlier registration matches every key they match.
+ */
+final class JitBindingIndex {
+
+  private final List<JitBindingImpl<?>> jitBindings = Lists.newArrayList();
+  private final List<JitBindingImpl<?>> jitBindingsView
+      = Collections.unmodifiableList(jitBindings);
+
+  /**
+   * Buckets keyed by the annotation of registrations with attributes, or by the annotation type
+   * (possibly null) of all other registrations.
+   */
+  private final Map<Object, Bucket> buckets = Maps.newHashMap();
+
+  /**
+   * The registration winning each key of an exact registration. Null until first needed. Volatile
+   * so that threads looking up keys concurrently see a complete map.
+   */
+  private volatile Map<Key<?>, JitBindingImpl<?>> exactMatches;
+
+  void add(JitBindingImpl<?> jitBinding) {
+    exactMatches = null;
+
+    Entry entry = new Entry(jitBindings.size(), jitBinding);
+    jitBindings.add(jitBinding);
+
+    Key<?> key = jitBinding.getKey();
+    Object bucketKey = key.hasAttributes() ? key.getAnnotation() : key.getAnnotationType();
+    Bucket bucket = buckets.get(bucketKey);
+    if (bucket == null) {
+      bucket = new Bucket();
+      buckets.put(bucketKey, bucket);
+    }
+    bucket.add(entry, jitBinding.getTypeScheme());
+  }
+
+  /** Returns all the just-in-time bindings, in registration order. */
+  List<JitBindingImpl<?>> getAll() {
+    return jitBindingsView;
+  }
+
+  /**
+   * Returns the just-in-time bindings that may be able to provide {@code key}, in registration
+   * order. Callers still need to check {@link JitBindingImpl#canProvide}.
+   */
+  List<JitBindingImpl<?>> getCandidates(Key<?> key) {
+    if (jitBindings.isEmpty()) {
+      return ImmutableList.of();
+    }
+
+    JitBindingImpl<?> exactMatch = getExactMatches().get(key);
+    if (exactMatch != null) {
+      return ImmutableList.<JitBindingImpl<?>>of(exactMatch);
+    }
+
+    Class<?> rawType = key.getTypeLiteral().getRawType();
+    List<Entry> byType = candidates(key.getAnnotationType(), rawType);
+    List<Entry> byAnnotation = key.hasAttributes()
+        ? candidates(key.getAnnotation(), rawType)
+        : ImmutableList.<Entry>of();
+    return merge(byType, byAnnotation);
+  }
+
+  /**
+   * Returns the registrations that can never provide a key because an earlier registration matches
+   * every key they match, each mapped to an earlier registration matching them. Registrations whose
+   * type scheme isn't exact are compared by their schemes, which may miss some of them.
+   */
+  Map<JitBindingImpl<?>, JitBindingImpl<?>> getShadowed() {
+    Map<JitBindingImpl<?>, JitBindingImpl<?>> result = Maps.newLinkedHashMap();
+    Map<Key<?>, JitBindingImpl<?>> exactMatches = getExactMatches();
+    for (int i = 0; i < jitBindings.size(); i++) {
+      JitBindingImpl<?> jitBinding = jitBindings.get(i);
+      Type typeScheme = jitBinding.getTypeScheme();
+      if (isExact(typeScheme)) {
+        JitBindingImpl<?> winner = exactMatches.get(jitBinding.getKey());
+        if (winner != jitBinding) {
+          result.put(jitBinding, winner);
+        }
+        continue;
+      }
+
+      for (JitBindingImpl<?> earlier : jitBindings.subList(0, i)) {
+        if (coversAnnotation(earlier.getKey(), jitBinding.getKey())
+            && MoreTypes.isInstance(earlier.getTypeScheme(), typeScheme)) {
+          result.put(jitBinding, earlier);
+          break;
+        }
+      }
+    }
+    return result;
+  }
+
+  private Map<Key<?>, JitBindingImpl<?>> getExactMatches() {
+    Map<Key<?>, JitBindingImpl<?>> exactMatches = this.exactMatches;
+    if (exactMatches == null) {
+      Map<Key<?>, JitBindingImpl<?>> result = Maps.newHashMap();
+      for (JitBindingImpl<?> jitBinding : jitBindings) {
+        Key<?> key = jitBinding.getKey();
+        if (!result.containsKey(key) && isExact(jitBinding.getTypeScheme())) {
+          for (JitBindingImpl<?> candidate : jitBindings) {
+            if (candidate.canProvide(key)) {
+              result.put(key, candidate);
+              break;
+            }
+          }
+        }
+      }
+      exactMatches = result;
+      this.exactMatches = result;
+    }
+    return exactMatches;
+  }
+
+  /** Returns true if the only type matching {@code typeScheme} is itself. */
+  private static boolean isExact(Type typeScheme) {
+    if (typeScheme instanceof Class<?>) {
+      return true;
+    } else if (typeScheme instanceof GenericArrayType) {
+      return isExact(((GenericArrayType) typeScheme).getGenericComponentType());
+    } else if (typeScheme instanceof ParameterizedType) {
+      for (Type typeArgument : ((ParameterizedType) typeScheme).getActualTypeArguments()) {
+        if (!isExact(typeArgument)) {
+          return false;
+        }
+      }
+      return true;
+    }
+    return false;
+  }
+
+  /** Returns true if every key annotated like {@code b} is annotated like {@code a}. */
+  private static boolean coversAnnotation(Key<?> a, Key<?> b) {
+    return Objects.equal(a.getAnnotationType(), b.getAnnotationType())
+        && (!a.hasAttributes() || (b.hasAttributes() && a.getAnnotation().equals(b.getAnnotation())));
+  }
+
+  private List<Entry> candidates(Object bucketKey, Class<?> rawType) {
+    Bucket bucket = buckets.get(bucketKey);
+    return bucket == null ? ImmutableList.<Entry>of() : bucket.getCandidates(rawType);
+  }
+
+  /** Merges two lists of entries sorted by registration order. */
+  private static List<JitBindingImpl<?>> merge(List<Entry> a, List<Entry> b) {
+    int size = a.size() + b.size();
+    if (size == 0) {
+      return ImmutableList.of();
+    }
+
+    List<JitBindingImpl<?>> result = new ArrayList<JitBindingImpl<?>>(size);
+    int i = 0;
+    int j = 0;
+    while (i < a.size() || j < b.size()) {
+      if (j == b.size() || (i < a.size() && a.get(i).order < b.get(j).order)) {
+        result.add(a.get(i++).jitBinding);
+      } else {
+        result.add(b.get(j++).jitBinding);
+      }
+    }
+    return result;
+  }
+
+  /** Registrations sharing the same annotation strategy, indexed by raw type. */
+  private static final class Bucket {
+    /** Registrations whose scheme is a class or a parameterized type, by raw type. */
+    private final Map<Class<?>, List<Entry>> byRawType = Maps.newHashMap();
+    /** Registrations whose scheme may match keys of any raw type. */
+    private final List<Entry> unindexed = Lists.newArrayList();
+
+    void add(Entry entry, Type typeScheme) {
+      Class<?> rawType = indexableRawType(typeScheme);
+      if (rawType == null) {
+        unindexed.add(entry);
+        return;
+      }
+
+      List<Entry> entries = byRawType.get(rawType);
+      if (entries == null) {
+        entries = Lists.newArrayList();
+        byRawType.put(rawType, entries);
+      }
+      entries.add(entry);
+    }
+
+    List<Entry> getCandidates(Class<?> rawType) {
+      List<Entry> entries = byRawType.get(rawType);
+      if (entries == null) {
+        return unindexed;
+      } else if (unindexed.isEmpty()) {
+        return entries;
+      }
+
+      List<Entry> result = new ArrayList<Entry>(entries.size() + unindexed.size());
+      result.addAll(entries);
+      result.addAll(unindexed);
+      Collections.sort(result);
+      return result;
+    }
+
+    /**
+     * Returns the raw type every key matched by {@code typeScheme} must have, or null if keys of
+     * different raw types may match.
+     */
+    private static Class<?> indexableRawType(Type typeScheme) {
+      if (typeScheme instanceof Class<?>) {
+        return (Class<?>) typeScheme;
+      } else if (typeScheme instanceof ParameterizedType) {
+        return (Class<?>) ((ParameterizedType) typeScheme).getRawType();
+      } else {
+        return null;
+      }
+    }
+  }
+
+  private static final class Entry implements Comparable<Entry> {
+    final int order;
+    final JitBindingImpl<?> jitBinding;
+
+    Entry(int order, JitBindingImpl<?> jitBinding) {
+      this.order = order;
+      this.jitBinding = jitBinding;
+    }
+
+    public int compareTo(Entry other) {
+      return order < other.order ? -1 : (order == other.order ? 0 : 1);
+    }
+  }
+}
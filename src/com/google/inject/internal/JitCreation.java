@@ -0,0 +1,112 @@
+/**
+ * Copyright (C) 2010 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.inject.internal;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.google.inject.Key;
+
+/**
+ * A just-in-time binding creation in progress on one thread, from the outermost lookup needing a
+ * new binding until that binding and the bindings created for its dependencies are complete. These
+ * bindings are only visible to the creating thread until they are published together.
+ *
+ * <p>The creation holds the lock of each key it creates a binding for, so that other threads
+ * needing one of these keys wait for the bindings to be published, while threads creating bindings
+ * for other keys proceed in parallel. If a thread would close a cycle of threads waiting for each
+ * other's keys, its creation is abandoned instead: its bindings are discarded and its locks
+ * released, so that the other threads can proceed, and it is retried once they're done.
+ */
+final class JitCreation {
+
+  /** The bindings created for each injector of the hierarchy, in creation order. */
+  private final Map<InjectorImpl, Level> levels = Maps.newLinkedHashMap();
+  /** The locks of the keys this creation creates bindings for. */
+  private final Map<Key<?>, KeyLock> locks = Maps.newLinkedHashMap();
+  /** The lock this creation gave up waiting for, or null. */
+  private CycleDetectingLock abandonedFor;
+
+  /** Returns the bindings created for {@code injector}, or null if there are none. */
+  Level getLevel(InjectorImpl injector) {
+    return levels.get(injector);
+  }
+
+  /** Returns the bindings created for {@code injector}, adding them if necessary. */
+  Level level(InjectorImpl injector) {
+    Level level = levels.get(injector);
+    if (level == null) {
+      level = new Level();
+      levels.put(injector, level);
+    }
+    return level;
+  }
+
+  Map<InjectorImpl, Level> getLevels() {
+    return levels;
+  }
+
+  boolean holdsLock(Key<?> key) {
+    return locks.containsKey(key);
+  }
+
+  void addLock(Key<?> key, KeyLock lock) {
+    locks.put(key, lock);
+  }
+
+  Map<Key<?>, KeyLock> getLocks() {
+    return locks;
+  }
+
+  /** Abandons this creation, because waiting for {@code lock} would have closed a cycle. */
+  void abandon(CycleDetectingLock lock) {
+    if (abandonedFor == null) {
+      abandonedFor = lock;
+    }
+  }
+
+  boolean isAbandoned() {
+    return abandonedFor != null;
+  }
+
+  /** Returns the lock to wait for before retrying an abandoned creation, or null. */
+  CycleDetectingLock getAbandonedFor() {
+    return abandonedFor;
+  }
+
+  /** The bindings created for one injector. */
+  static final class Level {
+    final Map<Key<?>, BindingImpl<?>> bindings = Maps.newLinkedHashMap();
+    /** Keys whose binding failed. */
+    final Set<Key<?>> failedKeys = Sets.newHashSet();
+    /** The bindings that failed, whose cached failures must be dropped if the creation is retried. */
+    final List<BindingImpl<?>> failedBindings = Lists.newArrayList();
+    /** Keys of the unscoped bindings created by just-in-time providers, if they may be evicted. */
+    final Set<Key<?>> evictableKeys = Sets.newLinkedHashSet();
+  }
+
+  /**
+   * The lock of a key whose binding is being created, shared by the threads creating or waiting for
+   * it. Guarded by the lock of the injector hierarchy's just-in-time bindings.
+   */
+  static final class KeyLock {
+    final CycleDetectingLock lock = new CycleDetectingLock();
+    /** The number of threads holding or about to wait for the lock. */
+    int users;
+  }
+}
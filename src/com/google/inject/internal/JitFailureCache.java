@@ -0,0 +1,91 @@
+/**
+ * Copyright (C) 2010 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.inject.internal;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentMap;
+
+import com.google.inject.Key;
+import com.google.inject.internal.InjectorImpl.JitLimitation;
+import com.google.inject.spi.Message;
+
+/**
+ * Remembers the keys for which an injector failed to create a just-in-time binding, along with the
+ * errors explaining why, so that repeated lookups of such keys neither lock the key nor redo the
+ * search. The cache can be read without locking, and is written by the threads creating bindings.
+ *
+ * <p>Entries are only valid as long as the injector's {@link State#getModificationCount()
+ * modification count} doesn't change; a change, such as a child injector state registering new
+ * just-in-time providers, discards the whole cache. The cache is also discarded when it grows past
+ * {@link #MAXIMUM_SIZE} entries.
+ */
+final class JitFailureCache {
+
+  static final int MAXIMUM_SIZE = 1024;
+
+  private final ConcurrentMap<Key<?>, Failure> failures = new MapMaker().makeMap();
+
+  /** The modification count of the state when the cached failures were recorded. */
+  private volatile int modificationCount;
+
+  /**
+   * Returns the errors of the failed attempt to create a just-in-time binding for {@code key}, or
+   * null if there is no such attempt on record.
+   */
+  List<Message> get(Key<?> key, JitLimitation jitType, int currentModificationCount) {
+    if (failures.isEmpty()) {
+      return null;
+    }
+
+    if (modificationCount != currentModificationCount) {
+      failures.clear();
+      return null;
+    }
+
+    Failure failure = failures.get(key);
+    return failure != null && failure.jitType == jitType ? failure.messages : null;
+  }
+
+  /**
+   * Returns true if an attempt to create a just-in-time binding for {@code key} failed, whatever
+   * its limitation.
+   */
+  boolean hasFailed(Key<?> key, int currentModificationCount) {
+    return !failures.isEmpty()
+        && modificationCount == currentModificationCount
+        && failures.containsKey(key);
+  }
+
+  synchronized void put(Key<?> key, JitLimitation jitType, int currentModificationCount,
+      List<Message> messages) {
+    if (modificationCount != currentModificationCount || failures.size() >= MAXIMUM_SIZE) {
+      failures.clear();
+      modificationCount = currentModificationCount;
+    }
+    failures.put(key, new Failure(jitType, ImmutableList.copyOf(messages)));
+  }
+
+  private static final class Failure {
+    final JitLimitation jitType;
+    final List<Message> messages;
+
+    Failure(JitLimitation jitType, List<Message> messages) {
+      this.jitType = jitType;
+      this.messages = messages;
+    }
+  }
+}
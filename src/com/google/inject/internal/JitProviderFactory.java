@@ -0,0 +1,313 @@
+/**
+ * Copyright (C) 2010 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.inject.internal;
+
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.google.inject.BatchJitProvider;
+import com.google.inject.CanonicalizingJitProvider;
+import com.google.inject.JitBinding;
+import com.google.inject.JitProvider;
+import com.google.inject.Key;
+import com.google.inject.Provider;
+import com.google.inject.spi.Dependency;
+
+/**
+ * Provides the instances of a binding created by a just-in-time provider. Also provides the
+ * parameters of a constructor or method that are backed by the same {@link BatchJitProvider} in a
+ * single call. Keys canonicalized by a {@link CanonicalizingJitProvider} to another key are
+ * provided by the binding of their canonical key, so that they share its scoped instance.
+ */
+final class JitProviderFactory<T> implements InternalFactory<T>, Provider<T> {
+
+  private final InjectorImpl injector;
+  private final Key<T> key;
+  private final JitBinding<?> jitBinding;
+  private final JitProviderReference<? extends T> jitProvider;
+  private final Object source;
+  private final JitProviderListeners listeners;
+
+  /** The factory of the canonical key, if it differs from the key. Only set once canonicalized. */
+  private volatile InternalFactory<? extends T> canonicalFactory;
+  private volatile boolean canonicalized;
+
+  JitProviderFactory(InjectorImpl injector, Key<T> key, JitBinding<?> jitBinding,
+      JitProviderReference<? extends T> jitProvider, Object source,
+      JitProviderListeners listeners) {
+    this.injector = injector;
+    this.key = key;
+    this.jitBinding = jitBinding;
+    this.jitProvider = jitProvider;
+    this.source = source;
+    this.listeners = listeners;
+  }
+
+  public T get() {
+    @SuppressWarnings("unchecked") // the provider can provide this key, see canProvide()
+    T instance = (T) jitProvider.get().get((Key) key);
+    return instance;
+  }
+
+  public T get(Errors errors, InternalContext context, Dependency<?> dependency, boolean linked)
+      throws ErrorsException {
+    InternalFactory<? extends T> canonicalFactory = getCanonicalFactory(errors);
+    if (canonicalFactory != null) {
+      return canonicalFactory.get(errors, context, dependency, linked);
+    }
+
+    if (listeners.isEmpty()) {
+      return provide(errors, dependency);
+    }
+
+    long start = System.nanoTime();
+    T instance;
+    try {
+      instance = provide(errors, dependency);
+    } catch (ErrorsException e) {
+      listeners.onProvision(errors, key, jitBinding, System.nanoTime() - start, true);
+      throw e;
+    }
+    listeners.onProvision(errors, key, jitBinding, System.nanoTime() - start, false);
+    return instance;
+  }
+
+  private T provide(Errors errors, Dependency<?> dependency) throws ErrorsException {
+    try {
+      return errors.checkForNull(get(), source, dependency);
+    } catch (RuntimeException userException) {
+      throw errors.withSource(source).errorInProvider(userException).toException();
+    }
+  }
+
+  /**
+   * Returns the factory of the key's canonical key, or null if the key is its own canonical key.
+   * Racing threads may canonicalize the key more than once, which is harmless.
+   */
+  private InternalFactory<? extends T> getCanonicalFactory(Errors errors) throws ErrorsException {
+    if (canonicalized) {
+      return canonicalFactory;
+    }
+
+    JitProvider<? extends T> provider;
+    Key<? extends T> canonicalKey;
+    try {
+      provider = jitProvider.get();
+      canonicalKey = canonicalize(provider, key);
+    } catch (RuntimeException userException) {
+      throw errors.withSource(source).errorInProvider(userException).toException();
+    }
+
+    if (canonicalKey != null && !canonicalKey.equals(key)) {
+      if (!jitBinding.canProvide(canonicalKey)
+          || !canonicalKey.equals(canonicalize(provider, canonicalKey))) {
+        throw errors.withSource(source).invalidCanonicalKey(key, canonicalKey).toException();
+      }
+      canonicalFactory = injector.getInternalFactory(
+          canonicalKey, errors, InjectorImpl.JitLimitation.NEW_OR_EXISTING_JIT);
+    }
+    canonicalized = true;
+    return canonicalFactory;
+  }
+
+  /**
+   * Returns true if the key is its own canonical key. Once the key is canonicalized, this is read
+   * from the cached result. Returns false if canonicalizing fails, which is reported when the key
+   * is provided on its own.
+   */
+  private boolean isCanonical() {
+    if (canonicalized) {
+      return canonicalFactory == null;
+    }
+    try {
+      return getCanonicalFactory(new Errors()) == null;
+    } catch (RuntimeException e) {
+      return false;
+    } catch (ErrorsException e) {
+      return false;
+    }
+  }
+
+  @SuppressWarnings("unchecked") // the provider can provide this key, see canProvide()
+  private static <T> Key<? extends T> canonicalize(JitProvider<? extends T> provider, Key<?> key) {
+    return provider instanceof CanonicalizingJitProvider<?>
+        ? ((CanonicalizingJitProvider) provider).canonicalize(key)
+        : null;
+  }
+
+  /** Obtains the just-in-time provider, so that the first instance doesn't have to. */
+  void warmUp(Errors errors) {
+    try {
+      jitProvider.get();
+    } catch (RuntimeException userException) {
+      errors.withSource(source).errorInProvider(userException);
+    }
+  }
+
+  /**
+   * Returns the indices of the parameters backed by the same just-in-time binding, grouped by
+   * binding, or null if no two parameters are. Only those parameters may share a batch provider, so
+   * this is computed once when the parameters are resolved. Only parameters whose binding is
+   * unscoped are candidates, since scoped ones must go through their scope.
+   */
+  static int[][] findBatches(SingleParameterInjector<?>[] parameterInjectors) {
+    if (parameterInjectors == null || parameterInjectors.length < 2) {
+      return null;
+    }
+
+    Map<JitBinding<?>, List<Integer>> batches
+        = new IdentityHashMap<JitBinding<?>, List<Integer>>();
+    for (int i = 0; i < parameterInjectors.length; i++) {
+      InternalFactory<?> factory = parameterInjectors[i].getFactory();
+      if (!(factory instanceof JitProviderFactory<?>)) {
+        continue;
+      }
+
+      JitBinding<?> jitBinding = ((JitProviderFactory<?>) factory).jitBinding;
+      List<Integer> batch = batches.get(jitBinding);
+      if (batch == null) {
+        batch = Lists.newArrayList();
+        batches.put(jitBinding, batch);
+      }
+      batch.add(i);
+    }
+
+    List<int[]> result = Lists.newArrayList();
+    for (List<Integer> batch : batches.values()) {
+      if (batch.size() < 2) {
+        continue;
+      }
+      int[] indices = new int[batch.size()];
+      for (int i = 0; i < indices.length; i++) {
+        indices[i] = batch.get(i);
+      }
+      result.add(indices);
+    }
+    return result.isEmpty() ? null : result.toArray(new int[result.size()][]);
+  }
+
+  /**
+   * Provides the parameters of each of {@code batches} that are backed by the same batch
+   * just-in-time provider with a single call per provider. Parameters whose key is canonicalized to
+   * another key aren't batched, since they are provided by the binding of their canonical key.
+   *
+   * @param batches the batches found by {@link #findBatches}, or null.
+   * @return which parameters were provided, or null if none were.
+   */
+  static boolean[] getAll(Errors errors, SingleParameterInjector<?>[] parameterInjectors,
+      int[][] batches, Object[] parameters) {
+    if (batches == null) {
+      return null;
+    }
+
+    boolean[] provided = null;
+    for (int[] candidates : batches) {
+      BatchJitProvider<?> batchJitProvider = null;
+      List<Integer> batch = Lists.newArrayList();
+      for (int i : candidates) {
+        JitProviderFactory<?> factory = (JitProviderFactory<?>) parameterInjectors[i].getFactory();
+        if (!factory.isCanonical()) {
+          continue;
+        }
+        JitProvider<?> jitProvider;
+        try {
+          jitProvider = factory.jitProvider.get();
+        } catch (RuntimeException e) {
+          continue; // reported when providing the parameter on its own
+        }
+        if (!(jitProvider instanceof BatchJitProvider<?>)) {
+          continue;
+        }
+        // without cached just-in-time providers, keys of a binding may not share a provider
+        if (batchJitProvider == null) {
+          batchJitProvider = (BatchJitProvider<?>) jitProvider;
+        }
+        if (jitProvider == batchJitProvider) {
+          batch.add(i);
+        }
+      }
+
+      if (batch.size() < 2) {
+        continue;
+      }
+      if (provided == null) {
+        provided = new boolean[parameterInjectors.length];
+      }
+      getAll(errors, batchJitProvider, batch, parameterInjectors, parameters, provided);
+    }
+    return provided;
+  }
+
+  @SuppressWarnings("unchecked") // keys are passed to the provider which can provide them
+  private static void getAll(Errors errors, BatchJitProvider batchJitProvider,
+      List<Integer> batch, SingleParameterInjector<?>[] parameterInjectors, Object[] parameters,
+      boolean[] provided) {
+    List<Key> keys = Lists.newArrayList();
+    for (int i : batch) {
+      keys.add(((JitProviderFactory<?>) parameterInjectors[i].getFactory()).key);
+      provided[i] = true;
+    }
+
+    long start = System.nanoTime();
+    Map<Key, Object> instances;
+    try {
+      instances = batchJitProvider.getAll(keys);
+    } catch (RuntimeException userException) {
+      SingleParameterInjector<?> first = parameterInjectors[batch.get(0)];
+      Object source = ((JitProviderFactory<?>) first.getFactory()).source;
+      errors.withSource(first.getDependency()).withSource(source).errorInProvider(userException);
+      notifyProvisions(errors, batch, parameterInjectors, System.nanoTime() - start, true);
+      return;
+    }
+    notifyProvisions(errors, batch, parameterInjectors, System.nanoTime() - start, false);
+
+    for (int i : batch) {
+      SingleParameterInjector<?> parameterInjector = parameterInjectors[i];
+      JitProviderFactory<?> factory = (JitProviderFactory<?>) parameterInjector.getFactory();
+      Dependency<?> dependency = parameterInjector.getDependency();
+      int numErrorsBefore = errors.size();
+      try {
+        parameters[i] = errors.checkForNull(instances.get(factory.key), factory.source, dependency);
+      } catch (ErrorsException e) {
+        // already recorded in errors
+      } finally {
+        errors.addSourceToNewMessages(numErrorsBefore, dependency);
+      }
+    }
+  }
+
+  /** Notifies listeners of each key of a batch, with the duration of the whole batch. */
+  private static void notifyProvisions(Errors errors, List<Integer> batch,
+      SingleParameterInjector<?>[] parameterInjectors, long nanos, boolean failed) {
+    for (int i : batch) {
+      JitProviderFactory<?> factory = (JitProviderFactory<?>) parameterInjectors[i].getFactory();
+      if (factory.listeners.isEmpty()) {
+        continue;
+      }
+      try {
+        factory.listeners.onProvision(errors, factory.key, factory.jitBinding, nanos, failed);
+      } catch (ErrorsException e) {
+        // already recorded in errors
+      }
+    }
+  }
+
+  @Override public String toString() {
+    return jitProvider.toString();
+  }
+}
@@ -21,6 +21,7 @@ import static com.google.inject.internal.Preconditions.checkNotNull;
 import com.google.inject.Binder;
 import com.google.inject.JitProvider;
 import com.google.inject.Key;
+import com.google.inject.TypeLiteral;
 
 /**
  * Just-in-time binding backed by an instance of a just-in-time provider.
@@ -39,9 +40,23 @@ public final class JitProviderInstanceBinding<T> extends JitBindingImpl<T> {
     this.jitProvider = checkNotNull(jitProvider, "jit provider");
   }
 
-  public JitProvider<? extends T> getJitProvider(InjectorImpl injector, Errors errors) {
-    injector.injectMembers(jitProvider);
-    return jitProvider;
+  Initializable<JitProvider<? extends T>> resolveJitProvider(
+      InjectorImpl injector, Errors errors) throws ErrorsException {
+    @SuppressWarnings("unchecked") // the provider is an instance of its own class
+    TypeLiteral<JitProvider<? extends T>> type
+        = (TypeLiteral) TypeLiteral.get(jitProvider.getClass());
+    final MembersInjectorImpl<JitProvider<? extends T>> membersInjector
+        = injector.membersInjectorStore.get(type, errors);
+    return new Initializable<JitProvider<? extends T>>() {
+      public JitProvider<? extends T> get(Errors errors) throws ErrorsException {
+        membersInjector.injectAndNotify(jitProvider, errors, false);
+        return jitProvider;
+      }
+
+      @Override public String toString() {
+        return jitProvider.toString();
+      }
+    };
   }
 
   public void applyTo(Binder binder) {
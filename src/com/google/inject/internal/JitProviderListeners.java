@@ -0,0 +1,68 @@
+/**
+ * Copyright (C) 2010 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.inject.internal;
+
+import java.util.List;
+
+import com.google.inject.JitBinding;
+import com.google.inject.Key;
+import com.google.inject.spi.JitProviderListenerBinding;
+
+/**
+ * Notifies the just-in-time provider listeners of an injector. Callers should check
+ * {@link #isEmpty} before timing anything, so that injectors without listeners pay nothing.
+ */
+final class JitProviderListeners {
+
+  static final JitProviderListeners NONE
+      = new JitProviderListeners(ImmutableList.<JitProviderListenerBinding>of());
+
+  private final ImmutableList<JitProviderListenerBinding> listenerBindings;
+
+  JitProviderListeners(List<JitProviderListenerBinding> listenerBindings) {
+    this.listenerBindings = ImmutableList.copyOf(listenerBindings);
+  }
+
+  boolean isEmpty() {
+    return listenerBindings.isEmpty();
+  }
+
+  void onLookup(Errors errors, Key<?> key, JitBinding<?> jitBinding, long nanos)
+      throws ErrorsException {
+    int numErrorsBefore = errors.size();
+    for (JitProviderListenerBinding listenerBinding : listenerBindings) {
+      try {
+        listenerBinding.getListener().onLookup(key, jitBinding, nanos);
+      } catch (RuntimeException e) {
+        errors.errorNotifyingJitProviderListener(listenerBinding, key, e);
+      }
+    }
+    errors.throwIfNewErrors(numErrorsBefore);
+  }
+
+  void onProvision(Errors errors, Key<?> key, JitBinding<?> jitBinding, long nanos,
+      boolean failed) throws ErrorsException {
+    int numErrorsBefore = errors.size();
+    for (JitProviderListenerBinding listenerBinding : listenerBindings) {
+      try {
+        listenerBinding.getListener().onProvision(key, jitBinding, nanos, failed);
+      } catch (RuntimeException e) {
+        errors.errorNotifyingJitProviderListener(listenerBinding, key, e);
+      }
+    }
+    errors.throwIfNewErrors(numErrorsBefore);
+  }
+}
@@ -18,22 +18,50 @@ package com.google.inject.internal;
 
 import static java.lang.Boolean.TRUE;
 
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.google.inject.Guice;
 import com.google.inject.JitBinding;
+import com.google.inject.spi.Element;
 
 /**
- * Handles {@code Binder.bindJitProvider} commands.
+ * Handles {@code Binder.bindJitProvider} commands. Once all of them are processed, logs a warning
+ * for each registration that can never be used because an earlier one takes precedence for every
+ * key it matches.
  *
  * @author pascal@kaching.com (Pascal-Louis Perez)
  * @since 3.0?
  */
 final class JitProviderProcessor extends AbstractProcessor {
 
+  private static final Logger logger = Logger.getLogger(Guice.class.getName());
+
   JitProviderProcessor(Errors errors) {
     super(errors);
   }
 
+  @Override public void process(InjectorImpl injector, List<Element> elements) {
+    super.process(injector, elements);
+
+    if (!logger.isLoggable(Level.WARNING)) {
+      return;
+    }
+    for (Map.Entry<JitBindingImpl<?>, JitBindingImpl<?>> shadowed
+        : injector.state.getShadowedJitBindingsThisLevel().entrySet()) {
+      logger.warning(String.format("The just-in-time provider for %s bound at %s is never used."
+          + " The one for %s bound at %s was bound first and matches every key it matches.",
+          shadowed.getKey().getKey(), Errors.convert(shadowed.getKey().getSource()),
+          shadowed.getValue().getKey(), Errors.convert(shadowed.getValue().getSource())));
+    }
+  }
+
   public <T> Boolean visit(JitBinding<T> binding) {
-    injector.state.addJitBinding((JitBindingImpl<?>) binding);
+    JitBindingImpl<?> jitBinding = (JitBindingImpl<?>) binding;
+    jitBinding.compileTypeScheme();
+    injector.state.addJitBinding(jitBinding);
     return TRUE;
   }
 
@@ -0,0 +1,103 @@
+/**
+ * Copyright (C) 2010 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.inject.internal;
+
+import com.google.inject.JitProvider;
+import com.google.inject.Key;
+import com.google.inject.ProvisionException;
+
+/**
+ * The just-in-time provider backing just-in-time bindings. It is shared by all the keys of a
+ * just-in-time provider binding, unless caching just-in-time providers is disabled. Obtaining the
+ * provider runs user code, namely constructing and injecting it, so it is done the first time the
+ * binding provides an instance rather than while the binding is created under the lock of its key.
+ * Threads needing the same provider wait for the one obtaining it, while threads needing different
+ * providers proceed in parallel.
+ *
+ * <p>A thread never waits while holding the lock of an injector being built, nor when waiting
+ * would close a cycle of threads waiting for each other, on these references, on singletons or on
+ * the keys of just-in-time bindings being created. It obtains the provider independently instead.
+ */
+final class JitProviderReference<T> {
+
+  private final InjectorImpl injector;
+  private final Key<T> key;
+  private final Initializable<JitProvider<? extends T>> initializable;
+
+  /** Held by the thread obtaining the provider. */
+  private final CycleDetectingLock lock = new CycleDetectingLock();
+
+  private volatile JitProvider<? extends T> jitProvider;
+
+  JitProviderReference(InjectorImpl injector, Key<T> key,
+      Initializable<JitProvider<? extends T>> initializable) {
+    this.injector = injector;
+    this.key = key;
+    this.initializable = initializable;
+  }
+
+  /**
+   * Returns the just-in-time provider, obtaining it if necessary.
+   *
+   * @throws ProvisionException if the provider could not be obtained.
+   */
+  public JitProvider<? extends T> get() {
+    JitProvider<? extends T> result = jitProvider;
+    if (result != null) {
+      return result;
+    }
+
+    Errors errors = new Errors();
+    if (lock.isHeldByCurrentThread()) {
+      throw new ProvisionException(errors.recursiveJitProvider(key).getMessages());
+    }
+
+    boolean locked = Thread.holdsLock(injector.state.lock()) ? lock.tryLock() : lock.lock();
+    try {
+      result = jitProvider;
+      if (result != null) {
+        return result;
+      }
+
+      try {
+        result = initializable.get(errors);
+        errors.throwIfNewErrors(0);
+      } catch (ErrorsException e) {
+        throw new ProvisionException(errors.merge(e.getErrors()).getMessages());
+      }
+
+      // keep the provider obtained first if another thread obtained one independently
+      synchronized (this) {
+        if (jitProvider == null) {
+          jitProvider = result;
+        }
+        return jitProvider;
+      }
+    } finally {
+      if (locked) {
+        lock.unlock();
+      }
+    }
+  }
+
+  @Override public String toString() {
+    return new ToStringBuilder(JitProviderReference.class)
+        .add("key", key)
+        .add("jitProvider", jitProvider)
+        .toString();
+  }
+}
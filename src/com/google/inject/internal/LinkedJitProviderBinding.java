@@ -42,13 +42,19 @@ public final class LinkedJitProviderBinding<T> extends JitBindingImpl<T> {
     this.jitProviderKey = checkNotNull(jitProviderKey, "jit provider key");
   }
 
-  public JitProvider<? extends T> getJitProvider(InjectorImpl injector, Errors errors) {
-    try {
-      Provider<? extends JitProvider<? extends T>> provider = injector.getProviderOrThrow(jitProviderKey, errors);
-      return provider == null ? null : provider.get();
-    } catch (ErrorsException e) {
-      return null;
-    }
+  Initializable<JitProvider<? extends T>> resolveJitProvider(
+      InjectorImpl injector, Errors errors) throws ErrorsException {
+    final Provider<? extends JitProvider<? extends T>> provider =
+        injector.getProviderOrThrow(jitProviderKey, errors);
+    return new Initializable<JitProvider<? extends T>>() {
+      public JitProvider<? extends T> get(Errors errors) {
+        return provider.get();
+      }
+
+      @Override public String toString() {
+        return provider.toString();
+      }
+    };
   }
 
   public void applyTo(Binder binder) {
@@ -49,6 +49,39 @@ final class MembersInjectorImpl<T> implements MembersInjector<T> {
     /*end[AOP]*/
   }
 
+  private MembersInjectorImpl(MembersInjectorImpl<T> original,
+      ImmutableList<SingleMemberInjector> memberInjectors) {
+    this.injector = original.injector;
+    this.typeLiteral = original.typeLiteral;
+    this.memberInjectors = memberInjectors;
+    this.userMembersInjectors = original.userMembersInjectors;
+    this.injectionListeners = original.injectionListeners;
+    /*if[AOP]*/
+    this.addedAspects = original.addedAspects;
+    /*end[AOP]*/
+  }
+
+  /**
+   * Returns a copy of this that injects the fields and methods covered by {@code
+   * generatedInjector} with it.
+   */
+  MembersInjectorImpl<T> withGeneratedInjector(GeneratedInjector generatedInjector) {
+    ImmutableList.Builder<SingleMemberInjector> builder = ImmutableList.builder();
+    for (SingleMemberInjector memberInjector : memberInjectors) {
+      int index = generatedInjector.indexOf(memberInjector.getInjectionPoint());
+      if (index == -1) {
+        builder.add(memberInjector);
+      } else if (memberInjector instanceof SingleFieldInjector) {
+        builder.add(new SingleFieldInjector(
+            (SingleFieldInjector) memberInjector, generatedInjector, index));
+      } else {
+        builder.add(new SingleMethodInjector(
+            (SingleMethodInjector) memberInjector, generatedInjector, index));
+      }
+    }
+    return new MembersInjectorImpl<T>(this, builder.build());
+  }
+
   public ImmutableList<SingleMemberInjector> getMemberInjectors() {
     return memberInjectors;
   }
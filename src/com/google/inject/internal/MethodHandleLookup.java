@@ -0,0 +1,142 @@
+/**
+ * Copyright (C) 2010 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.inject.internal;
+
+import java.lang.reflect.AccessibleObject;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Looks up {@code java.lang.invoke.MethodHandle}s for members, including private ones. Guice
+ * compiles for Java 5, so handles are looked up reflectively and only invoked by generated code.
+ * On VMs without {@code java.lang.invoke}, no handles are returned.
+ *
+ * <p>Each handle's type replaces the reference types of the member's signature with {@code Object},
+ * so that generated code can invoke it exactly without accessing those types:
+ * <ul>
+ *   <li>a constructor's handle takes its parameters and returns {@code Object};
+ *   <li>a method's handle takes the instance followed by its parameters, and returns void;
+ *   <li>a field's handle takes the instance and the value, and returns void.
+ * </ul>
+ */
+final class MethodHandleLookup {
+
+  private static final Logger logger = Logger.getLogger(MethodHandleLookup.class.getName());
+
+  /** The public lookup, or null if method handles are not available. */
+  private static final Object LOOKUP;
+  private static final Method UNREFLECT;
+  private static final Method UNREFLECT_CONSTRUCTOR;
+  private static final Method UNREFLECT_SETTER;
+  private static final Method METHOD_TYPE;
+  private static final Method AS_TYPE;
+
+  static {
+    Object lookup = null;
+    Method unreflect = null;
+    Method unreflectConstructor = null;
+    Method unreflectSetter = null;
+    Method methodType = null;
+    Method asType = null;
+    try {
+      Class<?> methodHandles = Class.forName("java.lang.invoke.MethodHandles");
+      Class<?> lookupClass = Class.forName("java.lang.invoke.MethodHandles$Lookup");
+      Class<?> methodTypeClass = Class.forName("java.lang.invoke.MethodType");
+      Class<?> methodHandleClass = Class.forName("java.lang.invoke.MethodHandle");
+      unreflect = lookupClass.getMethod("unreflect", Method.class);
+      unreflectConstructor = lookupClass.getMethod("unreflectConstructor", Constructor.class);
+      unreflectSetter = lookupClass.getMethod("unreflectSetter", Field.class);
+      methodType = methodTypeClass.getMethod("methodType", Class.class, Class[].class);
+      asType = methodHandleClass.getMethod("asType", methodTypeClass);
+      lookup = methodHandles.getMethod("publicLookup").invoke(null);
+    } catch (Exception e) {
+      logger.log(Level.FINE, "Method handles are not available", e);
+      lookup = null;
+    }
+    LOOKUP = lookup;
+    UNREFLECT = unreflect;
+    UNREFLECT_CONSTRUCTOR = unreflectConstructor;
+    UNREFLECT_SETTER = unreflectSetter;
+    METHOD_TYPE = methodType;
+    AS_TYPE = asType;
+  }
+
+  private MethodHandleLookup() {}
+
+  /** Returns true if this VM supports method handles. */
+  static boolean isAvailable() {
+    return LOOKUP != null;
+  }
+
+  /** Returns the handle of {@code constructor}, or null if it cannot be looked up. */
+  static Object forConstructor(Constructor<?> constructor) {
+    return lookUp(UNREFLECT_CONSTRUCTOR, constructor, Object.class,
+        erase(constructor.getParameterTypes(), false));
+  }
+
+  /** Returns the handle of {@code method}, or null if it cannot be looked up. */
+  static Object forMethod(Method method) {
+    return lookUp(UNREFLECT, method, void.class, erase(method.getParameterTypes(), true));
+  }
+
+  /** Returns the handle that sets {@code field}, or null if it cannot be looked up. */
+  static Object forFieldSetter(Field field) {
+    return lookUp(UNREFLECT_SETTER, field, void.class,
+        erase(new Class<?>[] { field.getType() }, true));
+  }
+
+  /**
+   * Returns {@code types} with reference types replaced by {@code Object}, preceded by {@code
+   * Object} for the instance if {@code withInstance} is true.
+   */
+  static Class<?>[] erase(Class<?>[] types, boolean withInstance) {
+    int offset = withInstance ? 1 : 0;
+    Class<?>[] result = new Class<?>[types.length + offset];
+    if (withInstance) {
+      result[0] = Object.class;
+    }
+    for (int i = 0; i < types.length; i++) {
+      result[i + offset] = types[i].isPrimitive() ? types[i] : Object.class;
+    }
+    return result;
+  }
+
+  private static Object lookUp(Method unreflect, AccessibleObject member,
+      Class<?> returnType, Class<?>[] parameterTypes) {
+    if (LOOKUP == null) {
+      return null;
+    }
+
+    try {
+      member.setAccessible(true);
+      Object handle = unreflect.invoke(LOOKUP, member);
+      return AS_TYPE.invoke(handle, METHOD_TYPE.invoke(null, returnType, parameterTypes));
+    } catch (InvocationTargetException e) {
+      logger.log(Level.FINE, "Cannot look up a method handle for " + member, e.getCause());
+      return null;
+    } catch (IllegalAccessException e) {
+      throw new AssertionError(e); // a security manager is blocking us, we're hosed
+    } catch (RuntimeException e) { // members of modules that aren't open to us
+      logger.log(Level.FINE, "Cannot look up a method handle for " + member, e);
+      return null;
+    }
+  }
+}
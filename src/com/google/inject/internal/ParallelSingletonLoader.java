@@ -0,0 +1,263 @@
+/**
+ * Copyright (C) 2010 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.inject.internal;
+
+import com.google.inject.Binding;
+import com.google.inject.ConfigurationException;
+import com.google.inject.Key;
+import com.google.inject.spi.Dependency;
+import com.google.inject.spi.HasDependencies;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Loads the eager singletons of an injector on an executor. The singletons each one depends on are
+ * found by following {@link HasDependencies} through the bindings that aren't eager singletons. A
+ * singleton is loaded once those are loaded, so independent singletons are loaded in parallel while
+ * dependent singletons are still loaded after their dependencies.
+ *
+ * <p>Loaded singletons put their dependents in a queue of singletons ready to be loaded. Each task
+ * run on the executor loads singletons from that queue until it is empty, and a singleton that
+ * readies several dependents starts a task for each additional one. A task never starts a nested
+ * loop on a thread already running one, so executors that run tasks on the calling thread don't
+ * recurse.
+ *
+ * <p>Singletons that depend on each other in a cycle, or on themselves, and the singletons that
+ * depend on them, are loaded sequentially on the creating thread afterwards.
+ *
+ * <p>Errors aren't thread-safe, so each singleton reports to its own. They are merged into the
+ * injector's errors in binding order once all singletons are loaded.
+ */
+final class ParallelSingletonLoader {
+
+  private final InjectorImpl injector;
+  private final Executor executor;
+  private final Map<Key<?>, Node> nodes = Maps.newLinkedHashMap();
+  /** Singletons whose dependencies are all loaded. */
+  private final Queue<Node> ready = new ConcurrentLinkedQueue<Node>();
+  /** Set on threads running {@link #loadReady}. */
+  private final ThreadLocal<Boolean> loading = new ThreadLocal<Boolean>();
+  private final Runnable task = new Runnable() {
+    public void run() {
+      loadReady();
+    }
+  };
+  private CountDownLatch loaded;
+
+  ParallelSingletonLoader(InjectorImpl injector, Executor executor) {
+    this.injector = injector;
+    this.executor = executor;
+  }
+
+  /** Loads the singletons bound by {@code bindings}, adding failures to {@code errors}. */
+  void load(List<BindingImpl<?>> bindings, Errors errors) {
+    for (BindingImpl<?> binding : bindings) {
+      nodes.put(binding.getKey(), new Node(binding));
+    }
+
+    for (Node node : nodes.values()) {
+      for (Node dependency : findSingletonDependencies(node)) {
+        dependency.dependents.add(node);
+        node.pendingDependencies.incrementAndGet();
+      }
+    }
+
+    Set<Node> acyclic = findAcyclic();
+    loaded = new CountDownLatch(acyclic.size());
+    List<Node> initiallyReady = Lists.newArrayList();
+    for (Node node : acyclic) {
+      if (node.pendingDependencies.get() == 0) {
+        initiallyReady.add(node);
+      }
+    }
+    ready.addAll(initiallyReady);
+    for (int i = 0; i < initiallyReady.size(); i++) {
+      startTask();
+    }
+    awaitUninterruptibly();
+
+    for (Node node : nodes.values()) {
+      if (acyclic.contains(node)) {
+        errors.merge(node.errors);
+        if (node.failure instanceof RuntimeException) {
+          throw (RuntimeException) node.failure;
+        } else if (node.failure instanceof Error) {
+          throw (Error) node.failure;
+        }
+      } else {
+        InternalInjectorCreator.loadEagerSingleton(injector, node.binding, errors);
+      }
+    }
+  }
+
+  /**
+   * Returns the singletons that {@code node} depends on, directly or through bindings that aren't
+   * eager singletons. That includes {@code node} if it depends on itself.
+   */
+  private Set<Node> findSingletonDependencies(Node node) {
+    Set<Node> result = Sets.newLinkedHashSet();
+    Set<Key<?>> visited = Sets.newHashSet();
+    List<Binding<?>> pending = Lists.<Binding<?>>newArrayList(node.binding);
+    while (!pending.isEmpty()) {
+      Binding<?> binding = pending.remove(pending.size() - 1);
+      if (!(binding instanceof HasDependencies)) {
+        continue;
+      }
+
+      for (Dependency<?> dependency : ((HasDependencies) binding).getDependencies()) {
+        Key<?> key = dependency.getKey();
+        if (!visited.add(key)) {
+          continue;
+        }
+
+        Node singleton = nodes.get(key);
+        if (singleton != null) {
+          result.add(singleton);
+          continue;
+        }
+
+        try {
+          Binding<?> dependencyBinding = injector.getExistingBinding(key);
+          if (dependencyBinding != null) {
+            pending.add(dependencyBinding);
+          }
+        } catch (ConfigurationException e) {
+          // reported when the singleton is loaded
+        }
+      }
+    }
+    return result;
+  }
+
+  /** Returns the nodes that don't depend on a cycle of singletons, in binding order. */
+  private Set<Node> findAcyclic() {
+    Map<Node, Integer> pendingDependencies = Maps.newHashMap();
+    List<Node> ready = Lists.newArrayList();
+    for (Node node : nodes.values()) {
+      int count = node.pendingDependencies.get();
+      pendingDependencies.put(node, count);
+      if (count == 0) {
+        ready.add(node);
+      }
+    }
+
+    Set<Node> reached = Sets.newHashSet();
+    while (!ready.isEmpty()) {
+      Node node = ready.remove(ready.size() - 1);
+      reached.add(node);
+      for (Node dependent : node.dependents) {
+        int count = pendingDependencies.get(dependent) - 1;
+        pendingDependencies.put(dependent, count);
+        if (count == 0) {
+          ready.add(dependent);
+        }
+      }
+    }
+
+    Set<Node> result = Sets.newLinkedHashSet();
+    for (Node node : nodes.values()) {
+      if (reached.contains(node)) {
+        result.add(node);
+      }
+    }
+    return result;
+  }
+
+  private void startTask() {
+    try {
+      executor.execute(task);
+    } catch (RejectedExecutionException e) {
+      task.run();
+    }
+  }
+
+  /** Loads singletons from the queue until it is empty, unless this thread is already doing so. */
+  private void loadReady() {
+    if (loading.get() != null) {
+      return;
+    }
+
+    loading.set(Boolean.TRUE);
+    try {
+      Node node;
+      while ((node = ready.poll()) != null) {
+        node.load();
+      }
+    } finally {
+      loading.remove();
+    }
+  }
+
+  private void awaitUninterruptibly() {
+    boolean interrupted = false;
+    while (true) {
+      try {
+        loaded.await();
+        break;
+      } catch (InterruptedException e) {
+        interrupted = true;
+      }
+    }
+    if (interrupted) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /** An eager singleton, which queues its dependents once it is loaded. */
+  private class Node {
+    final BindingImpl<?> binding;
+    final Errors errors = new Errors();
+    final List<Node> dependents = Lists.newArrayList();
+    /** The number of singletons this depends on that aren't loaded yet. */
+    final AtomicInteger pendingDependencies = new AtomicInteger();
+    /** Thrown while loading, and rethrown on the creating thread. */
+    Throwable failure;
+
+    Node(BindingImpl<?> binding) {
+      this.binding = binding;
+    }
+
+    void load() {
+      try {
+        InternalInjectorCreator.loadEagerSingleton(injector, binding, errors);
+      } catch (RuntimeException e) {
+        failure = e;
+      } catch (Error e) {
+        failure = e;
+      } finally {
+        // the current task loads the first dependent readied, and new tasks the others
+        int readied = 0;
+        for (Node dependent : dependents) {
+          if (dependent.pendingDependencies.decrementAndGet() == 0) {
+            ready.add(dependent);
+            if (readied++ > 0) {
+              startTask();
+            }
+          }
+        }
+        loaded.countDown();
+      }
+    }
+  }
+}
@@ -18,7 +18,6 @@ package com.google.inject.internal;
 
 import com.google.inject.Provider;
 import com.google.inject.ProvisionException;
-import com.google.inject.spi.Dependency;
 
 /**
  * @author crazybob@google.com (Bob Lee)
@@ -35,18 +34,22 @@ final class ProviderToInternalFactoryAdapter<T> implements Provider<T> {
   }
 
   public T get() {
-    final Errors errors = new Errors();
+    // like callInContext(), without allocating a callable
+    InternalContext context = injector.localContext.get();
+    boolean outermost = context.enter();
+    Errors errors = context.getErrors();
+    int numErrorsBefore = errors.size();
     try {
-      T t = injector.callInContext(new ContextualCallable<T>() {
-        public T call(InternalContext context) throws ErrorsException {
-          Dependency dependency = context.getDependency();
-          return internalFactory.get(errors, context, dependency, false);
-        }
-      });
-      errors.throwIfNewErrors(0);
+      T t = internalFactory.get(errors, context, context.getDependency(), false);
+      errors.throwIfNewErrors(numErrorsBefore);
       return t;
     } catch (ErrorsException e) {
-      throw new ProvisionException(errors.merge(e.getErrors()).getMessages());
+      throw new ProvisionException(errors.merge(e.getErrors()).removeNewMessages(numErrorsBefore));
+    } finally {
+      errors.removeNewMessages(numErrorsBefore);
+      if (outermost) {
+        context.exit();
+      }
     }
   }
 
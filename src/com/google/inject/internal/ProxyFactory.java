@@ -62,9 +62,17 @@ final class ProxyFactory<T> implements ConstructionProxyFactory<T> {
    * which classloader we should use for loading the enhanced class
    */
   private BytecodeGen.Visibility visibility = BytecodeGen.Visibility.PUBLIC;
+  /** False if constructors without interceptors are always invoked reflectively. */
+  private final boolean fastClass;
 
   ProxyFactory(InjectionPoint injectionPoint, Iterable<MethodAspect> methodAspects) {
+    this(injectionPoint, methodAspects, true);
+  }
+
+  ProxyFactory(InjectionPoint injectionPoint, Iterable<MethodAspect> methodAspects,
+      boolean fastClass) {
     this.injectionPoint = injectionPoint;
+    this.fastClass = fastClass;
 
     @SuppressWarnings("unchecked") // the member of injectionPoint is always a Constructor<T>
         Constructor<T> constructor = (Constructor<T>) injectionPoint.getMember();
@@ -146,7 +154,7 @@ final class ProxyFactory<T> implements ConstructionProxyFactory<T> {
 
   public ConstructionProxy<T> create() {
     if (interceptors.isEmpty()) {
-      return new DefaultConstructionProxyFactory<T>(injectionPoint).create();
+      return new DefaultConstructionProxyFactory<T>(injectionPoint, fastClass).create();
     }
 
     @SuppressWarnings("unchecked")
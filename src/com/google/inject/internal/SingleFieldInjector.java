@@ -29,34 +29,54 @@ final class SingleFieldInjector implements SingleMemberInjector {
   final InjectionPoint injectionPoint;
   final Dependency<?> dependency;
   final InternalFactory<?> factory;
+  /** Sets the field instead of reflection if non-null. */
+  final GeneratedInjector generatedInjector;
+  final int generatedIndex;
 
   public SingleFieldInjector(InjectorImpl injector, InjectionPoint injectionPoint, Errors errors)
       throws ErrorsException {
     this.injectionPoint = injectionPoint;
     this.field = (Field) injectionPoint.getMember();
     this.dependency = injectionPoint.getDependencies().get(0);
+    this.generatedInjector = null;
+    this.generatedIndex = -1;
 
     // Ewwwww...
     field.setAccessible(true);
     factory = injector.getInternalFactory(dependency.getKey(), errors, JitLimitation.NO_JIT);
   }
 
+  /** Returns a copy of {@code original} that sets the field with {@code generatedInjector}. */
+  SingleFieldInjector(SingleFieldInjector original, GeneratedInjector generatedInjector,
+      int generatedIndex) {
+    this.injectionPoint = original.injectionPoint;
+    this.field = original.field;
+    this.dependency = original.dependency;
+    this.factory = original.factory;
+    this.generatedInjector = generatedInjector;
+    this.generatedIndex = generatedIndex;
+  }
+
   public InjectionPoint getInjectionPoint() {
     return injectionPoint;
   }
 
   public void inject(Errors errors, InternalContext context, Object o) {
-    errors = errors.withSource(dependency);
-
+    int numErrorsBefore = errors.size();
     Dependency previous = context.setDependency(dependency);
     try {
       Object value = factory.get(errors, context, dependency, false);
-      field.set(o, value);
+      if (generatedInjector != null) {
+        generatedInjector.setField(generatedIndex, o, value);
+      } else {
+        field.set(o, value);
+      }
     } catch (ErrorsException e) {
       errors.withSource(injectionPoint).merge(e.getErrors());
     } catch (IllegalAccessException e) {
       throw new AssertionError(e); // a security manager is blocking us, we're hosed
     } finally {
+      errors.addSourceToNewMessages(numErrorsBefore, dependency);
       context.setDependency(previous);
     }
   }
@@ -27,16 +27,42 @@ import java.lang.reflect.Modifier;
  * Invokes an injectable method.
  */
 final class SingleMethodInjector implements SingleMemberInjector {
-  private final MethodInvoker methodInvoker;
+  private final Method method;
+  /**
+   * Invokes the method when it isn't generated. Created on first use if generated injectors may
+   * invoke the method, so that no fast class is generated for methods they invoke.
+   */
+  private volatile MethodInvoker methodInvoker;
   private final SingleParameterInjector<?>[] parameterInjectors;
+  private final int[][] parameterBatches;
   private final InjectionPoint injectionPoint;
+  /** Gets the parameters and invokes the method instead of reflection if non-null. */
+  private final GeneratedInjector generatedInjector;
+  private final int generatedIndex;
 
   SingleMethodInjector(InjectorImpl injector, InjectionPoint injectionPoint, Errors errors)
       throws ErrorsException {
     this.injectionPoint = injectionPoint;
-    final Method method = (Method) injectionPoint.getMember();
-    methodInvoker = createMethodInvoker(method);
+    this.method = (Method) injectionPoint.getMember();
+    if (!injector.options.generateInjectors) {
+      methodInvoker = createMethodInvoker(method);
+    }
     parameterInjectors = injector.getParametersInjectors(injectionPoint.getDependencies(), errors);
+    parameterBatches = JitProviderFactory.findBatches(parameterInjectors);
+    generatedInjector = null;
+    generatedIndex = -1;
+  }
+
+  /** Returns a copy of {@code original} that invokes the method with {@code generatedInjector}. */
+  SingleMethodInjector(SingleMethodInjector original, GeneratedInjector generatedInjector,
+      int generatedIndex) {
+    this.injectionPoint = original.injectionPoint;
+    this.method = original.method;
+    this.methodInvoker = original.methodInvoker;
+    this.parameterInjectors = original.parameterInjectors;
+    this.parameterBatches = original.parameterBatches;
+    this.generatedInjector = generatedInjector;
+    this.generatedIndex = generatedIndex;
   }
 
   private MethodInvoker createMethodInvoker(final Method method) {
@@ -77,17 +103,40 @@ final class SingleMethodInjector implements SingleMemberInjector {
     return injectionPoint;
   }
 
+  SingleParameterInjector<?>[] getParameterInjectors() {
+    return parameterInjectors;
+  }
+
   public void inject(Errors errors, InternalContext context, Object o) {
+    if (generatedInjector != null) {
+      try {
+        generatedInjector.inject(generatedIndex, errors, context, o);
+      } catch (InvocationTargetException userException) {
+        Throwable cause = userException.getCause() != null
+            ? userException.getCause()
+            : userException;
+        errors.withSource(injectionPoint).errorInjectingMethod(cause);
+      }
+      return;
+    }
+
     Object[] parameters;
     try {
-      parameters = SingleParameterInjector.getAll(errors, context, parameterInjectors);
+      parameters = SingleParameterInjector.getAll(
+          errors, context, parameterInjectors, parameterBatches);
     } catch (ErrorsException e) {
       errors.merge(e.getErrors());
       return;
     }
 
+    MethodInvoker invoker = methodInvoker;
+    if (invoker == null) {
+      invoker = createMethodInvoker(method);
+      methodInvoker = invoker;
+    }
+
     try {
-      methodInvoker.invoke(o, parameters);
+      invoker.invoke(o, parameters);
     } catch (IllegalAccessException e) {
       throw new AssertionError(e); // a security manager is blocking us, we're hosed
     } catch (InvocationTargetException userException) {
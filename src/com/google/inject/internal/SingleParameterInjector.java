@@ -32,20 +32,35 @@ final class SingleParameterInjector<T> {
     this.factory = factory;
   }
 
-  private T inject(Errors errors, InternalContext context) throws ErrorsException {
+  Dependency<T> getDependency() {
+    return dependency;
+  }
+
+  InternalFactory<? extends T> getFactory() {
+    return factory;
+  }
+
+  T inject(Errors errors, InternalContext context) throws ErrorsException {
+    int numErrorsBefore = errors.size();
     Dependency previous = context.setDependency(dependency);
     try {
-      return factory.get(errors.withSource(dependency), context, dependency, false);
+      return factory.get(errors, context, dependency, false);
+    } catch (ErrorsException e) {
+      throw errors.merge(e.getErrors()).toException();
     } finally {
+      errors.addSourceToNewMessages(numErrorsBefore, dependency);
       context.setDependency(previous);
     }
   }
 
   /**
    * Returns an array of parameter values.
+   *
+   * @param batches the parameters that may be provided together, from {@link
+   *     JitProviderFactory#findBatches}
    */
   static Object[] getAll(Errors errors, InternalContext context,
-      SingleParameterInjector<?>[] parameterInjectors) throws ErrorsException {
+      SingleParameterInjector<?>[] parameterInjectors, int[][] batches) throws ErrorsException {
     if (parameterInjectors == null) {
       return NO_ARGUMENTS;
     }
@@ -54,9 +69,13 @@ final class SingleParameterInjector<T> {
 
     int size = parameterInjectors.length;
     Object[] parameters = new Object[size];
+    boolean[] provided = JitProviderFactory.getAll(errors, parameterInjectors, batches, parameters);
 
     // optimization: use manual for/each to save allocating an iterator here  
     for (int i = 0; i < size; i++) {
+      if (provided != null && provided[i]) {
+        continue;
+      }
       SingleParameterInjector<?> parameterInjector = parameterInjectors[i];
       try {
         parameters[i] = parameterInjector.inject(errors, context);
@@ -24,6 +24,7 @@ import com.google.inject.Binding;
 import com.google.inject.Key;
 import com.google.inject.Scope;
 import com.google.inject.TypeLiteral;
+import com.google.inject.spi.JitProviderListenerBinding;
 import com.google.inject.spi.TypeListenerBinding;
 
 /**
@@ -55,6 +56,18 @@ interface State {
       return ImmutableList.of();
     }
 
+    public List<JitBindingImpl<?>> getJitBindingCandidatesThisLevel(Key<?> key) {
+      return ImmutableList.of();
+    }
+
+    public List<JitBindingImpl<?>> getInheritedJitBindingCandidates(Key<?> key) {
+      return ImmutableList.of();
+    }
+
+    public Map<JitBindingImpl<?>, JitBindingImpl<?>> getShadowedJitBindingsThisLevel() {
+      return ImmutableMap.of();
+    }
+
     public void addJitBinding(JitBindingImpl<?> jitBinding) {
       throw new UnsupportedOperationException();
     }
@@ -98,6 +111,14 @@ interface State {
       return ImmutableList.of();
     }
 
+    public void addJitProviderListener(JitProviderListenerBinding listenerBinding) {
+      throw new UnsupportedOperationException();
+    }
+
+    public List<JitProviderListenerBinding> getJitProviderListenerBindings() {
+      return ImmutableList.of();
+    }
+
     public void blacklist(Key<?> key) {
     }
 
@@ -109,6 +130,10 @@ interface State {
       throw new UnsupportedOperationException();
     }
 
+    public int getModificationCount() {
+      return 0;
+    }
+
     public Map<Class<? extends Annotation>, Scope> getScopes() {
       return ImmutableMap.of();
     }
@@ -127,6 +152,25 @@ interface State {
   /** Returns the just-in-time bindings at this level only. */
   List<JitBindingImpl<?>> getJitBindingsThisLevel();
 
+  /**
+   * Returns the just-in-time bindings at this level only that may be able to provide {@code key},
+   * in registration order.
+   */
+  List<JitBindingImpl<?>> getJitBindingCandidatesThisLevel(Key<?> key);
+
+  /**
+   * Returns the just-in-time bindings at this level and at all ancestor levels that may be able to
+   * provide {@code key}, root level first and then in registration order. Must hold
+   * {@link #lock()}.
+   */
+  List<JitBindingImpl<?>> getInheritedJitBindingCandidates(Key<?> key);
+
+  /**
+   * Returns the just-in-time bindings at this level only that can never provide a key because an
+   * earlier one at this level matches every key they match, each mapped to such an earlier one.
+   */
+  Map<JitBindingImpl<?>, JitBindingImpl<?>> getShadowedJitBindingsThisLevel();
+
   void addJitBinding(JitBindingImpl<?> jitBinding);
 
   /** Returns the matching scope, or null. */
@@ -153,6 +197,11 @@ interface State {
 
   List<TypeListenerBinding> getTypeListenerBindings();
 
+  void addJitProviderListener(JitProviderListenerBinding listenerBinding);
+
+  /** Returns the just-in-time provider listeners of this level and of all ancestor levels. */
+  List<JitProviderListenerBinding> getJitProviderListenerBindings();
+
   /**
    * Forbids the corresponding injector from creating a binding to {@code key}. Child injectors
    * blacklist their bound keys on their parent injectors to prevent just-in-time bindings on the
@@ -167,11 +216,17 @@ interface State {
   boolean isBlacklisted(Key<?> key);
 
   /**
-   * Returns the shared lock for all injector data. This is a low-granularity, high-contention lock
-   * to be used when reading mutable data (ie. just-in-time bindings, and binding blacklists).
+   * Returns the shared lock for all injector data, held while building an injector of the
+   * hierarchy. Just-in-time bindings are created without it, under the lock of their key.
    */
   Object lock();
 
+  /**
+   * Returns a count that changes whenever bindings, just-in-time bindings or converters are added
+   * at this level or at a parent level. It can be read without holding the {@link #lock() lock}.
+   */
+  int getModificationCount();
+
   /**
    * Returns all the scope bindings at this level and parent levels.
    */
@@ -0,0 +1,186 @@
+/**
+ * Copyright (C) 2010 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.inject.internal;
+
+import java.lang.reflect.GenericArrayType;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.lang.reflect.TypeVariable;
+import java.lang.reflect.WildcardType;
+import java.util.concurrent.ConcurrentMap;
+
+import com.google.inject.TypeLiteral;
+
+/**
+ * Matches types against a type scheme, with the same semantics as
+ * {@link MoreTypes#isInstance(Type, Type)}. The scheme is compiled once into a tree of immutable
+ * nodes, so that matching doesn't need to inspect the scheme's type arguments and bounds again.
+ * Results are memoized per type literal, so that matching a type already seen is a lookup.
+ */
+final class TypeSchemeMatcher {
+
+  /** The number of results kept. Past that, memoized results are discarded all at once. */
+  static final int MAXIMUM_MEMOIZED_RESULTS = 1024;
+
+  private final Node root;
+  /** Null if the scheme is a class, since comparing types is then cheaper than a lookup. */
+  private final ConcurrentMap<TypeLiteral<?>, Boolean> results;
+
+  TypeSchemeMatcher(Type typeScheme) {
+    this.root = compile(typeScheme);
+    this.results = typeScheme instanceof Class<?>
+        ? null
+        : new MapMaker().<TypeLiteral<?>, Boolean>makeMap();
+  }
+
+  /** Returns true if {@code typeLiteral} is an instance of the type scheme. */
+  boolean matches(TypeLiteral<?> typeLiteral) {
+    if (results == null) {
+      return root.matches(typeLiteral.getType());
+    }
+
+    Boolean result = results.get(typeLiteral);
+    if (result == null) {
+      result = root.matches(typeLiteral.getType());
+      if (results.size() >= MAXIMUM_MEMOIZED_RESULTS) {
+        results.clear();
+      }
+      results.put(typeLiteral, result);
+    }
+    return result;
+  }
+
+  private static Node compile(Type typeScheme) {
+    if (typeScheme instanceof Class<?>) {
+      return new ClassNode((Class<?>) typeScheme);
+    } else if (typeScheme instanceof GenericArrayType) {
+      return new GenericArrayNode(
+          compile(((GenericArrayType) typeScheme).getGenericComponentType()));
+    } else if (typeScheme instanceof ParameterizedType) {
+      ParameterizedType parameterizedType = (ParameterizedType) typeScheme;
+      Type[] typeArguments = parameterizedType.getActualTypeArguments();
+      Node[] typeArgumentNodes = new Node[typeArguments.length];
+      for (int i = 0; i < typeArguments.length; i++) {
+        typeArgumentNodes[i] = compile(typeArguments[i]);
+      }
+      return new ParameterizedNode(parameterizedType.getRawType(), typeArgumentNodes);
+    } else if (typeScheme instanceof TypeVariable<?>) {
+      Type[] bounds = ((TypeVariable<?>) typeScheme).getBounds();
+      return new TypeVariableNode(bounds.length == 0 ? null : bounds[0]);
+    } else if (typeScheme instanceof WildcardType) {
+      WildcardType wildcardType = (WildcardType) typeScheme;
+      return new WildcardNode(wildcardType.getLowerBounds(), wildcardType.getUpperBounds());
+    }
+    throw new IllegalStateException();
+  }
+
+  private interface Node {
+    boolean matches(Type type);
+  }
+
+  private static final class ClassNode implements Node {
+    private final Class<?> type;
+
+    ClassNode(Class<?> type) {
+      this.type = type;
+    }
+
+    public boolean matches(Type other) {
+      return type.equals(other);
+    }
+  }
+
+  private static final class GenericArrayNode implements Node {
+    private final Node componentType;
+
+    GenericArrayNode(Node componentType) {
+      this.componentType = componentType;
+    }
+
+    public boolean matches(Type type) {
+      return type instanceof GenericArrayType
+          && componentType.matches(((GenericArrayType) type).getGenericComponentType());
+    }
+  }
+
+  private static final class ParameterizedNode implements Node {
+    private final Type rawType;
+    private final Node[] typeArguments;
+
+    ParameterizedNode(Type rawType, Node[] typeArguments) {
+      this.rawType = rawType;
+      this.typeArguments = typeArguments;
+    }
+
+    public boolean matches(Type type) {
+      if (!(type instanceof ParameterizedType)) {
+        return false;
+      }
+      ParameterizedType parameterizedType = (ParameterizedType) type;
+      if (!rawType.equals(parameterizedType.getRawType())) {
+        return false;
+      }
+      Type[] actualTypeArguments = parameterizedType.getActualTypeArguments();
+      if (actualTypeArguments.length != typeArguments.length) {
+        return false;
+      }
+      for (int i = 0; i < typeArguments.length; i++) {
+        if (!typeArguments[i].matches(actualTypeArguments[i])) {
+          return false;
+        }
+      }
+      return true;
+    }
+  }
+
+  /** Like {@link MoreTypes#isInstance}, only checks the first bound of type variables. */
+  private static final class TypeVariableNode implements Node {
+    private final Type bound;
+
+    TypeVariableNode(Type bound) {
+      this.bound = bound;
+    }
+
+    public boolean matches(Type type) {
+      return bound == null || MoreTypes.isAssignableFrom(bound, type);
+    }
+  }
+
+  private static final class WildcardNode implements Node {
+    private final Type[] lowerBounds;
+    private final Type[] upperBounds;
+
+    WildcardNode(Type[] lowerBounds, Type[] upperBounds) {
+      this.lowerBounds = lowerBounds;
+      this.upperBounds = upperBounds;
+    }
+
+    public boolean matches(Type type) {
+      for (Type lowerBound : lowerBounds) {
+        if (!MoreTypes.isAssignableFrom(type, lowerBound)) {
+          return false;
+        }
+      }
+      for (Type upperBound : upperBounds) {
+        if (!MoreTypes.isAssignableFrom(upperBound, type)) {
+          return false;
+        }
+      }
+      return true;
+    }
+  }
+}
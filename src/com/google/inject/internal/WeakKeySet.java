@@ -33,9 +33,9 @@ final class WeakKeySet {
    * keys whose class names are equal but class loaders are different. This shouldn't be an issue
    * in practice.
    */
-  private Set<String> backingSet;
+  private volatile Set<String> backingSet;
 
-  public boolean add(Key<?> key) {
+  public synchronized boolean add(Key<?> key) {
     if (backingSet == null) {
       backingSet = Sets.newHashSet();
     }
@@ -45,6 +45,11 @@ final class WeakKeySet {
   public boolean contains(Object o) {
     // avoid calling key.toString() if the backing set is empty. toString is expensive in aggregate,
     // and most WeakKeySets are empty in practice (because they're used by top-level injectors)
-    return backingSet != null && o instanceof Key && backingSet.contains(o.toString());
+    if (backingSet == null || !(o instanceof Key)) {
+      return false;
+    }
+    synchronized (this) {
+      return backingSet.contains(o.toString());
+    }
   }
 }
@@ -87,4 +87,8 @@ public abstract class DefaultElementVisitor<V> implements ElementVisitor<V> {
   public V visit(TypeListenerBinding binding) {
     return visitOther(binding);
   }
+
+  public V visit(JitProviderListenerBinding binding) {
+    return visitOther(binding);
+  }
 }
@@ -92,4 +92,11 @@ public interface ElementVisitor<V> {
    * Visit an injectable type listener binding.
    */
   V visit(TypeListenerBinding binding);
+
+  /**
+   * Visit a just-in-time provider listener binding.
+   *
+   * @since 3.0?
+   */
+  V visit(JitProviderListenerBinding binding);
 }
@@ -211,6 +211,10 @@ public final class Elements {
       elements.add(new TypeListenerBinding(getSource(), listener, typeMatcher));
     }
 
+    public void bindListener(JitProviderListener listener) {
+      elements.add(new JitProviderListenerBinding(getSource(), listener));
+    }
+
     public <T> AnnotatedJitBindingBuilder<T> bindJit(TypeLiteral<T> typeLiteral) {
       return new JitBindingBuilder<T>(Key.get(typeLiteral), elements, getSource());
     }
@@ -0,0 +1,51 @@
+/**
+ * Copyright (C) 2010 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.inject.spi;
+
+import com.google.inject.JitBinding;
+import com.google.inject.Key;
+
+/**
+ * Listens to just-in-time providers, for example to collect metrics on them. Registered in a module
+ * using {@link com.google.inject.Binder#bindListener(JitProviderListener)}, and notified by the
+ * injector it is registered in and by that injector's children.
+ *
+ * <p>Listeners are notified on the threads looking up keys and providing instances, so they must
+ * be thread-safe and fast. {@link com.google.inject.util.JitProviderMetrics} is a ready to use
+ * implementation.
+ *
+ * @since 3.0?
+ */
+public interface JitProviderListener {
+
+  /**
+   * Invoked after the injector looked for a just-in-time provider registration able to provide
+   * {@code key}, when creating a just-in-time binding for it.
+   *
+   * @param jitBinding the registration matching the key, or null if none did
+   * @param nanos the time spent looking for the registration
+   */
+  void onLookup(Key<?> key, JitBinding<?> jitBinding, long nanos);
+
+  /**
+   * Invoked after the just-in-time provider of {@code jitBinding} was called to provide an
+   * instance of {@code key}, including the first call which obtains the provider itself.
+   *
+   * @param nanos the time spent providing the instance
+   * @param failed true if providing the instance failed
+   */
+  void onProvision(Key<?> key, JitBinding<?> jitBinding, long nanos, boolean failed);
+}
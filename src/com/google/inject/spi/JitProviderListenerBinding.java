@@ -0,0 +1,52 @@
+/**
+ * Copyright (C) 2010 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.inject.spi;
+
+import com.google.inject.Binder;
+
+/**
+ * Registration of a {@link JitProviderListener}. Registrations are created explicitly in a module
+ * using {@link com.google.inject.Binder#bindListener(JitProviderListener)} statements.
+ *
+ * @since 3.0?
+ */
+public final class JitProviderListenerBinding implements Element {
+
+  private final Object source;
+  private final JitProviderListener listener;
+
+  JitProviderListenerBinding(Object source, JitProviderListener listener) {
+    this.source = source;
+    this.listener = listener;
+  }
+
+  /** Returns the registered listener. */
+  public JitProviderListener getListener() {
+    return listener;
+  }
+
+  public Object getSource() {
+    return source;
+  }
+
+  public <T> T acceptVisitor(ElementVisitor<T> visitor) {
+    return visitor.visit(this);
+  }
+
+  public void applyTo(Binder binder) {
+    binder.withSource(getSource()).bindListener(listener);
+  }
+}
@@ -0,0 +1,231 @@
+/**
+ * Copyright (C) 2010 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.inject.util;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import com.google.inject.JitBinding;
+import com.google.inject.Key;
+import com.google.inject.internal.Function;
+import com.google.inject.internal.MapMaker;
+import com.google.inject.internal.Maps;
+import com.google.inject.spi.JitProviderListener;
+
+/**
+ * Collects in memory how often each just-in-time provider registration is matched and how long it
+ * takes to provide instances, so that the registrations dominating latency can be found. Register
+ * it in a module, and read its metrics at any time:
+ *
+ * <pre>
+ *   JitProviderMetrics metrics = new JitProviderMetrics();
+ *   Injector injector = Guice.createInjector(new AbstractModule() {
+ *     protected void configure() {
+ *       bindListener(metrics);
+ *       ...
+ *     }
+ *   });
+ *   ...
+ *   for (Map.Entry&lt;JitBinding&lt;?>, Metrics> entry : metrics.getMetrics().entrySet()) {
+ *     ...
+ *   }</pre>
+ *
+ * <p>Durations are recorded in histograms whose buckets are powers of two nanoseconds.
+ *
+ * @since 3.0?
+ */
+public final class JitProviderMetrics implements JitProviderListener {
+
+  private final ConcurrentMap<JitBinding<?>, Recorder> recorders = new MapMaker().makeComputingMap(
+      new Function<JitBinding<?>, Recorder>() {
+        public Recorder apply(JitBinding<?> jitBinding) {
+          return new Recorder();
+        }
+      });
+  private final HistogramRecorder unmatchedLookups = new HistogramRecorder();
+
+  public void onLookup(Key<?> key, JitBinding<?> jitBinding, long nanos) {
+    if (jitBinding == null) {
+      unmatchedLookups.record(nanos);
+    } else {
+      recorders.get(jitBinding).lookups.record(nanos);
+    }
+  }
+
+  public void onProvision(Key<?> key, JitBinding<?> jitBinding, long nanos, boolean failed) {
+    Recorder recorder = recorders.get(jitBinding);
+    recorder.provisions.record(nanos);
+    if (failed) {
+      recorder.failures.incrementAndGet();
+    }
+  }
+
+  /** Returns a snapshot of the metrics of each registration that has been matched or used. */
+  public Map<JitBinding<?>, Metrics> getMetrics() {
+    Map<JitBinding<?>, Metrics> result = Maps.newLinkedHashMap();
+    for (Map.Entry<JitBinding<?>, Recorder> entry : recorders.entrySet()) {
+      Recorder recorder = entry.getValue();
+      result.put(entry.getKey(), new Metrics(recorder.lookups.snapshot(),
+          recorder.provisions.snapshot(), recorder.failures.get()));
+    }
+    return Collections.unmodifiableMap(result);
+  }
+
+  /** Returns a snapshot of the durations of lookups that matched no registration. */
+  public Histogram getUnmatchedLookups() {
+    return unmatchedLookups.snapshot();
+  }
+
+  @Override public String toString() {
+    StringBuilder result = new StringBuilder();
+    for (Map.Entry<JitBinding<?>, Metrics> entry : getMetrics().entrySet()) {
+      result.append("just-in-time provider bound at ").append(entry.getKey().getSource())
+          .append(": ").append(entry.getValue())
+          .append('\n');
+    }
+    return result.append("unmatched lookups: ").append(getUnmatchedLookups()).toString();
+  }
+
+  /** The metrics of a single just-in-time provider registration. */
+  public static final class Metrics {
+    private final Histogram lookups;
+    private final Histogram provisions;
+    private final long failures;
+
+    private Metrics(Histogram lookups, Histogram provisions, long failures) {
+      this.lookups = lookups;
+      this.provisions = provisions;
+      this.failures = failures;
+    }
+
+    /** Returns the durations of the lookups that matched this registration. */
+    public Histogram getLookups() {
+      return lookups;
+    }
+
+    /** Returns the durations of the calls to the just-in-time provider, failed ones included. */
+    public Histogram getProvisions() {
+      return provisions;
+    }
+
+    /** Returns the number of calls to the just-in-time provider that failed. */
+    public long getFailures() {
+      return failures;
+    }
+
+    @Override public String toString() {
+      return "lookups " + lookups + ", provisions " + provisions + ", failures " + failures;
+    }
+  }
+
+  /** Durations, counted in buckets of powers of two nanoseconds. */
+  public static final class Histogram {
+    private final long[] buckets;
+    private final long count;
+    private final long totalNanos;
+    private final long maximumNanos;
+
+    private Histogram(long[] buckets, long count, long totalNanos, long maximumNanos) {
+      this.buckets = buckets;
+      this.count = count;
+      this.totalNanos = totalNanos;
+      this.maximumNanos = maximumNanos;
+    }
+
+    public long getCount() {
+      return count;
+    }
+
+    public long getTotalNanos() {
+      return totalNanos;
+    }
+
+    public long getMaximumNanos() {
+      return maximumNanos;
+    }
+
+    public long getMeanNanos() {
+      return count == 0 ? 0 : totalNanos / count;
+    }
+
+    /**
+     * Returns the number of durations in each bucket. Bucket {@code i} counts the durations of at
+     * least {@code 2^i} and less than {@code 2^(i+1)} nanoseconds, except bucket 0 which also
+     * counts durations of 0.
+     */
+    public long[] getBucketCounts() {
+      return buckets.clone();
+    }
+
+    /**
+     * Returns an upper bound of the given percentile of the durations, at most twice the actual
+     * value, or 0 if there are none.
+     *
+     * @param percentile between 0 and 100
+     */
+    public long getPercentileNanos(double percentile) {
+      long threshold = (long) Math.ceil(count * percentile / 100);
+      long seen = 0;
+      for (int i = 0; i < buckets.length; i++) {
+        seen += buckets[i];
+        if (seen >= threshold && seen > 0) {
+          return Math.min(maximumNanos, (2L << i) - 1);
+        }
+      }
+      return 0;
+    }
+
+    @Override public String toString() {
+      return String.format("[count=%d, mean=%dns, p99<=%dns, max=%dns]",
+          count, getMeanNanos(), getPercentileNanos(99), maximumNanos);
+    }
+  }
+
+  private static final class Recorder {
+    final HistogramRecorder lookups = new HistogramRecorder();
+    final HistogramRecorder provisions = new HistogramRecorder();
+    final AtomicLong failures = new AtomicLong();
+  }
+
+  private static final class HistogramRecorder {
+    private final AtomicLongArray buckets = new AtomicLongArray(Long.SIZE);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong totalNanos = new AtomicLong();
+    private final AtomicLong maximumNanos = new AtomicLong();
+
+    void record(long nanos) {
+      nanos = Math.max(0, nanos);
+      buckets.incrementAndGet(nanos == 0 ? 0 : Long.SIZE - 1 - Long.numberOfLeadingZeros(nanos));
+      count.incrementAndGet();
+      totalNanos.addAndGet(nanos);
+      long maximum;
+      while ((maximum = maximumNanos.get()) < nanos
+          && !maximumNanos.compareAndSet(maximum, nanos)) {}
+    }
+
+    /** Returns the recorded durations. Concurrent records may be partially included. */
+    Histogram snapshot() {
+      long[] counts = new long[buckets.length()];
+      for (int i = 0; i < counts.length; i++) {
+        counts[i] = buckets.get(i);
+      }
+      return new Histogram(counts, count.get(), totalNanos.get(), maximumNanos.get());
+    }
+  }
+}
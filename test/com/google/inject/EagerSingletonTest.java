@@ -16,6 +16,21 @@
 
 package com.google.inject;
 
+import static com.google.inject.Asserts.assertContains;
+import com.google.inject.internal.ImmutableList;
+import com.google.inject.internal.ImmutableSet;
+import com.google.inject.internal.Lists;
+import static com.google.inject.name.Names.named;
+import com.google.inject.spi.Dependency;
+import com.google.inject.spi.ProviderWithDependencies;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 import junit.framework.TestCase;
 
 /**
@@ -27,6 +42,9 @@ public class EagerSingletonTest extends TestCase {
     A.instanceCount = 0;
     B.instanceCount = 0;
     C.instanceCount = 0;
+    WarmedUp.loaded.clear();
+    SelfDependent.loadingThread = null;
+    ChainLink.stackDepths.clear();
   }
 
   public void testJustInTimeEagerSingletons() {
@@ -67,6 +85,235 @@ public class EagerSingletonTest extends TestCase {
     assertEquals(1, C.instanceCount);
   }
 
+  public void testParallelPreloading() {
+    final CountDownLatch constructing = new CountDownLatch(2);
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      Injector injector = new InjectorBuilder()
+          .stage(Stage.PRODUCTION)
+          .preloadSingletonsInParallel(executor)
+          .addModules(new AbstractModule() {
+            protected void configure() {
+              bind(CountDownLatch.class).toInstance(constructing);
+              bind(AwaitingSingleton.class);
+              bind(OtherAwaitingSingleton.class);
+              bind(DependsOnAwaitingSingletons.class);
+              bind(Cyclic.class);
+              bind(OtherCyclic.class);
+            }
+          })
+          .build();
+
+      // the awaiting singletons wait for each other, so they must be loaded concurrently
+      DependsOnAwaitingSingletons dependent = injector.getInstance(
+          DependsOnAwaitingSingletons.class);
+      assertTrue(dependent.awaitingSingleton.awaited);
+      assertTrue(dependent.otherAwaitingSingleton.awaited);
+      assertSame(dependent.awaitingSingleton, injector.getInstance(AwaitingSingleton.class));
+      assertSame(injector.getInstance(Cyclic.class), injector.getInstance(Cyclic.class));
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  public void testParallelPreloadingReportsErrors() {
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      new InjectorBuilder()
+          .stage(Stage.PRODUCTION)
+          .preloadSingletonsInParallel(executor)
+          .addModules(new AbstractModule() {
+            protected void configure() {
+              bind(ThrowingSingleton.class);
+              bind(A.class);
+            }
+          })
+          .build();
+      fail();
+    } catch (CreationException expected) {
+      assertContains(expected.getMessage(), "Error injecting constructor, "
+          + "java.lang.UnsupportedOperationException: eager");
+      assertEquals(1, expected.getErrorMessages().size());
+      assertEquals(1, A.instanceCount);
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  public void testParallelPreloadingLoadsSelfDependentSingletonsSequentially() {
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      new InjectorBuilder()
+          .stage(Stage.PRODUCTION)
+          .preloadSingletonsInParallel(executor)
+          .addModules(new AbstractModule() {
+            protected void configure() {
+              bind(SelfDependent.class);
+            }
+          })
+          .build();
+      assertSame(Thread.currentThread(), SelfDependent.loadingThread);
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  public void testParallelPreloadingOnCallingThreadDoesNotRecurse() {
+    Executor callingThread = new Executor() {
+      public void execute(Runnable task) {
+        task.run();
+      }
+    };
+    new InjectorBuilder()
+        .stage(Stage.PRODUCTION)
+        .preloadSingletonsInParallel(callingThread)
+        .addModules(new AbstractModule() {
+          protected void configure() {
+            Key<Object> previous = null;
+            for (int i = 0; i < 100; i++) {
+              Key<Object> link = Key.get(Object.class, named("link" + i));
+              bind(link).toProvider(new ChainLink(previous)).asEagerSingleton();
+              previous = link;
+            }
+          }
+        })
+        .build();
+
+    // each link is loaded once the previous one is, at the same depth
+    assertEquals(100, ChainLink.stackDepths.size());
+    assertEquals(1, ImmutableSet.copyOf(ChainLink.stackDepths).size());
+  }
+
+  public void testBackgroundWarmUp() {
+    final List<Runnable> tasks = Lists.newArrayList();
+    Executor executor = new Executor() {
+      public void execute(Runnable task) {
+        tasks.add(task);
+      }
+    };
+    Comparator<Key<?>> reverseOrder = new Comparator<Key<?>>() {
+      public int compare(Key<?> a, Key<?> b) {
+        return b.getTypeLiteral().toString().compareTo(a.getTypeLiteral().toString());
+      }
+    };
+
+    Injector injector = new InjectorBuilder()
+        .stage(Stage.PRODUCTION)
+        .warmUpSingletonsInBackground(executor, reverseOrder)
+        .addModules(new AbstractModule() {
+          protected void configure() {
+            bind(WarmedUp.class);
+            bind(WarmedUpToo.class);
+            bind(WarmedUpThree.class);
+          }
+        })
+        .build();
+    assertEquals(ImmutableList.of(), WarmedUp.loaded);
+
+    // requests don't wait for the warm-up
+    WarmedUpToo warmedUpToo = injector.getInstance(WarmedUpToo.class);
+    assertEquals(ImmutableList.of(WarmedUpToo.class), WarmedUp.loaded);
+
+    for (Runnable task : tasks) {
+      task.run();
+    }
+    assertEquals(ImmutableList.of(WarmedUpToo.class, WarmedUpThree.class, WarmedUp.class),
+        WarmedUp.loaded);
+    assertSame(warmedUpToo, injector.getInstance(WarmedUpToo.class));
+  }
+
+  @Singleton
+  static class WarmedUp {
+    static final List<Class<?>> loaded = Lists.newArrayList();
+
+    WarmedUp() {
+      loaded.add(getClass());
+    }
+  }
+
+  @Singleton
+  static class WarmedUpToo extends WarmedUp {}
+
+  @Singleton
+  static class WarmedUpThree extends WarmedUp {}
+
+  @Singleton
+  static class AwaitingSingleton {
+    final boolean awaited;
+
+    @Inject AwaitingSingleton(CountDownLatch constructing) throws InterruptedException {
+      constructing.countDown();
+      awaited = constructing.await(10, TimeUnit.SECONDS);
+    }
+  }
+
+  @Singleton
+  static class OtherAwaitingSingleton extends AwaitingSingleton {
+    @Inject OtherAwaitingSingleton(CountDownLatch constructing) throws InterruptedException {
+      super(constructing);
+    }
+  }
+
+  @Singleton
+  static class DependsOnAwaitingSingletons {
+    final AwaitingSingleton awaitingSingleton;
+    final OtherAwaitingSingleton otherAwaitingSingleton;
+
+    @Inject DependsOnAwaitingSingletons(AwaitingSingleton awaitingSingleton,
+        OtherAwaitingSingleton otherAwaitingSingleton) {
+      this.awaitingSingleton = awaitingSingleton;
+      this.otherAwaitingSingleton = otherAwaitingSingleton;
+    }
+  }
+
+  @Singleton
+  static class Cyclic {
+    @Inject Provider<OtherCyclic> otherCyclic;
+  }
+
+  @Singleton
+  static class OtherCyclic {
+    @Inject Provider<Cyclic> cyclic;
+  }
+
+  @Singleton
+  static class SelfDependent {
+    static Thread loadingThread;
+    @Inject Provider<SelfDependent> self;
+
+    SelfDependent() {
+      loadingThread = Thread.currentThread();
+    }
+  }
+
+  /** Depends on the previous link of a chain of singletons. */
+  static class ChainLink implements ProviderWithDependencies<Object> {
+    static final List<Integer> stackDepths = Lists.newArrayList();
+    final Key<Object> previous;
+
+    ChainLink(Key<Object> previous) {
+      this.previous = previous;
+    }
+
+    public Object get() {
+      stackDepths.add(new Throwable().getStackTrace().length);
+      return new Object();
+    }
+
+    public Set<Dependency<?>> getDependencies() {
+      return previous != null
+          ? ImmutableSet.<Dependency<?>>of(Dependency.get(previous))
+          : ImmutableSet.<Dependency<?>>of();
+    }
+  }
+
+  @Singleton
+  static class ThrowingSingleton {
+    @Inject ThrowingSingleton() {
+      throw new UnsupportedOperationException("eager");
+    }
+  }
+
   @Singleton
   static class A {
     static int instanceCount = 0;
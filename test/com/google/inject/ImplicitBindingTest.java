@@ -17,10 +17,19 @@
 package com.google.inject;
 
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import com.google.inject.internal.Iterables;
+import com.google.inject.matcher.Matchers;
 import com.google.inject.name.Named;
 import com.google.inject.name.Names;
+import com.google.inject.spi.TypeEncounter;
+import com.google.inject.spi.TypeListener;
 import junit.framework.TestCase;
 
 /**
@@ -259,4 +268,98 @@ public class ImplicitBindingTest extends TestCase {
     }
   }  
 
+  public void testUnrelatedBindingsAreCreatedConcurrently() throws Exception {
+    final CountDownLatch hearing = new CountDownLatch(1);
+    final CountDownLatch release = new CountDownLatch(1);
+    final Injector injector = Guice.createInjector(new AbstractModule() {
+      protected void configure() {
+        bindListener(Matchers.only(TypeLiteral.get(SlowToBind.class)), new TypeListener() {
+          public <I> void hear(TypeLiteral<I> type, TypeEncounter<I> encounter) {
+            hearing.countDown();
+            await(release);
+          }
+        });
+      }
+    });
+
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      Future<SlowToBind> slow = executor.submit(getInstance(injector, SlowToBind.class));
+      await(hearing);
+      // SlowToBind's binding is still being created
+      Future<FastToBind> fast = executor.submit(getInstance(injector, FastToBind.class));
+      assertNotNull(fast.get(5, TimeUnit.SECONDS));
+      assertFalse(slow.isDone());
+
+      release.countDown();
+      assertNotNull(slow.get(5, TimeUnit.SECONDS));
+    } finally {
+      release.countDown();
+      executor.shutdown();
+    }
+  }
+
+  static class SlowToBind {}
+  static class FastToBind {}
+
+  public void testThreadsCreatingBindingsForEachOtherDoNotDeadlock() throws Exception {
+    final CountDownLatch bothCreating = new CountDownLatch(2);
+    TypeListener rendezvous = new TypeListener() {
+      public <I> void hear(TypeLiteral<I> type, TypeEncounter<I> encounter) {
+        // only the first time, the bindings of an abandoned creation are created again
+        bothCreating.countDown();
+        await(bothCreating);
+      }
+    };
+    final Injector injector = Guice.createInjector(new AbstractModule() {
+      protected void configure() {
+        bindListener(Matchers.only(TypeLiteral.get(GateA.class)), rendezvous);
+        bindListener(Matchers.only(TypeLiteral.get(GateB.class)), rendezvous);
+      }
+    });
+
+    // each thread locks the key of its gate's dependant, then needs the other thread's key
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      Future<BehindGateA> a = executor.submit(getInstance(injector, BehindGateA.class));
+      Future<BehindGateB> b = executor.submit(getInstance(injector, BehindGateB.class));
+      assertNotNull(a.get(5, TimeUnit.SECONDS).other.get());
+      assertNotNull(b.get(5, TimeUnit.SECONDS).other.get());
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  static class GateA {}
+  static class GateB {}
+
+  static class BehindGateA {
+    final Provider<BehindGateB> other;
+    @Inject BehindGateA(GateA gate, Provider<BehindGateB> other) {
+      this.other = other;
+    }
+  }
+
+  static class BehindGateB {
+    final Provider<BehindGateA> other;
+    @Inject BehindGateB(GateB gate, Provider<BehindGateA> other) {
+      this.other = other;
+    }
+  }
+
+  private static <T> Callable<T> getInstance(final Injector injector, final Class<T> type) {
+    return new Callable<T>() {
+      public T call() {
+        return injector.getInstance(type);
+      }
+    };
+  }
+
+  private static void await(CountDownLatch latch) {
+    try {
+      assertTrue(latch.await(5, TimeUnit.SECONDS));
+    } catch (InterruptedException e) {
+      throw new RuntimeException(e);
+    }
+  }
 }
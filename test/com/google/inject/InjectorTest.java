@@ -105,6 +105,16 @@ public class InjectorTest extends TestCase {
     assertEquals(5, bar.getI());
   }
 
+  public void testGetProviderReturnsSameProvider() throws CreationException {
+    Injector injector = createFooInjector();
+
+    Provider<Bar> provider = injector.getProvider(Bar.class);
+    assertSame(provider, injector.getProvider(Bar.class));
+    assertSame(injector.getProvider(Key.get(Bar.class)), injector.getProvider(Key.get(Bar.class)));
+    assertEquals("test", injector.getInstance(Bar.class).getTee().getS());
+    assertEquals("test", provider.get().getTee().getS());
+  }
+
   public void testIntAndIntegerAreInterchangeable()
       throws CreationException {
     Injector injector = Guice.createInjector(new AbstractModule() {
@@ -238,6 +248,8 @@ public class InjectorTest extends TestCase {
   static class Private {
     String fromConstructor;
     int fromMethod;
+    final boolean constructedByGeneratedInjector = calledByGeneratedInjector();
+    boolean intInjectedByGeneratedInjector;
 
     @Inject
     private Private(String fromConstructor) {
@@ -246,6 +258,7 @@ public class InjectorTest extends TestCase {
 
     @Inject
     private void setInt(int i) {
+      intInjectedByGeneratedInjector = calledByGeneratedInjector();
       this.fromMethod = i;
     }
   }
@@ -385,4 +398,220 @@ public class InjectorTest extends TestCase {
   }
 
   static class JustInTime {}
+
+  public void testGeneratedInjectors() {
+    Injector injector = new InjectorBuilder().generateInjectors().addModules(new AbstractModule() {
+      protected void configure() {
+        bind(String.class).toInstance("foo");
+        bind(int.class).toInstance(5);
+        bind(long.class).toInstance(7L);
+      }
+    }).build();
+
+    Generated generated = injector.getInstance(Generated.class);
+    assertEquals("foo", generated.fromConstructor);
+    assertEquals(5, generated.intFromConstructor);
+    assertEquals(7L, generated.fromField);
+    assertEquals("foo", generated.fromPrivateField);
+    assertEquals(5, generated.fromMethod);
+    assertEquals("foo", generated.fromPrivateMethod);
+    assertNotSame(generated, injector.getInstance(Generated.class));
+    assertTrue(generated.constructedByGeneratedInjector);
+    assertTrue(generated.intInjectedByGeneratedInjector);
+    assertFalse(generated.stringInjectedByGeneratedInjector);
+
+    Private p = injector.getInstance(Private.class);
+    assertEquals("foo", p.fromConstructor);
+    assertEquals(5, p.fromMethod);
+    assertFalse(p.constructedByGeneratedInjector);
+    assertFalse(p.intInjectedByGeneratedInjector);
+  }
+
+  /**
+   * Returns true if the constructor or method calling this was called by a generated injector,
+   * rather than through reflection.
+   */
+  static boolean calledByGeneratedInjector() {
+    return callerClassName().contains("$$InjectorByGuice$$");
+  }
+
+  /**
+   * Returns the class that called the constructor or method calling this, skipping reflection
+   * frames.
+   */
+  private static String callerClassName() {
+    StackTraceElement[] stackTrace = new Throwable().getStackTrace();
+    for (int i = 3; i < stackTrace.length; i++) {
+      String className = stackTrace[i].getClassName();
+      if (!className.startsWith("java.") && !className.startsWith("javax.")
+          && !className.startsWith("sun.") && !className.startsWith("jdk.")) {
+        return className;
+      }
+    }
+    return "";
+  }
+
+  static class Generated {
+    final String fromConstructor;
+    final int intFromConstructor;
+    @Inject long fromField;
+    @Inject private String fromPrivateField;
+    int fromMethod;
+    String fromPrivateMethod;
+    final boolean constructedByGeneratedInjector = calledByGeneratedInjector();
+    boolean intInjectedByGeneratedInjector;
+    boolean stringInjectedByGeneratedInjector;
+
+    @Inject
+    Generated(String fromConstructor, int intFromConstructor) {
+      this.fromConstructor = fromConstructor;
+      this.intFromConstructor = intFromConstructor;
+    }
+
+    @Inject
+    protected int setInt(int i) {
+      intInjectedByGeneratedInjector = calledByGeneratedInjector();
+      return this.fromMethod = i;
+    }
+
+    @Inject
+    private void setString(String s) {
+      stringInjectedByGeneratedInjector = calledByGeneratedInjector();
+      this.fromPrivateMethod = s;
+    }
+  }
+
+  public void testMethodHandleInjectors() {
+    Injector injector = new InjectorBuilder().useMethodHandles().addModules(new AbstractModule() {
+      protected void configure() {
+        bind(String.class).toInstance("foo");
+        bind(int.class).toInstance(5);
+        bind(long.class).toInstance(7L);
+      }
+    }).build();
+
+    PrivateMembers privateMembers = injector.getInstance(PrivateMembers.class);
+    assertEquals("foo", privateMembers.fromConstructor);
+    assertEquals(7L, privateMembers.longFromConstructor);
+    assertEquals(5, privateMembers.fromField);
+    assertEquals("foo", privateMembers.fromMethod);
+    assertEquals(7L, privateMembers.longFromMethod);
+    // without method handles, private members are left to reflection
+    boolean methodHandlesAvailable = isAvailable("java.lang.invoke.MethodHandles");
+    assertEquals(methodHandlesAvailable, privateMembers.constructedByGeneratedInjector);
+    assertEquals(methodHandlesAvailable, privateMembers.injectedByGeneratedInjector);
+
+    try {
+      injector.getInstance(PrivateThrowingConstructor.class);
+      fail();
+    } catch (ProvisionException expected) {
+      assertContains(expected.getMessage(), "Error injecting constructor, "
+          + "java.lang.UnsupportedOperationException: private constructor");
+      assertTrue(expected.getCause() instanceof UnsupportedOperationException);
+    }
+  }
+
+  public void testMethodHandleInjectorsUseFastClassesForOtherMembers() {
+    Injector injector = new InjectorBuilder().useMethodHandles().build();
+
+    // members injection isn't generated
+    FastClassMethod fastClassMethod = new FastClassMethod();
+    injector.injectMembers(fastClassMethod);
+    assertTrue(fastClassMethod.injectedByFastClass);
+  }
+
+  public static class FastClassMethod {
+    boolean injectedByFastClass;
+
+    @Inject
+    public void inject() {
+      injectedByFastClass = callerClassName().contains("$$FastClassByGuice$$");
+    }
+  }
+
+  private static boolean isAvailable(String className) {
+    try {
+      Class.forName(className);
+      return true;
+    } catch (ClassNotFoundException e) {
+      return false;
+    }
+  }
+
+  static class PrivateMembers {
+    private final String fromConstructor;
+    private final long longFromConstructor;
+    @Inject private int fromField;
+    private String fromMethod;
+    private long longFromMethod;
+    private final boolean constructedByGeneratedInjector = calledByGeneratedInjector();
+    private boolean injectedByGeneratedInjector;
+
+    @Inject
+    private PrivateMembers(String fromConstructor, long longFromConstructor) {
+      this.fromConstructor = fromConstructor;
+      this.longFromConstructor = longFromConstructor;
+    }
+
+    @Inject
+    private String inject(String s, long l) {
+      injectedByGeneratedInjector = calledByGeneratedInjector();
+      this.longFromMethod = l;
+      return this.fromMethod = s;
+    }
+  }
+
+  static class PrivateThrowingConstructor {
+    @Inject private PrivateThrowingConstructor() {
+      throw new UnsupportedOperationException("private constructor");
+    }
+  }
+
+  public void testGeneratedInjectorsReportUserExceptions() {
+    Injector injector = new InjectorBuilder().generateInjectors().build();
+
+    try {
+      injector.getInstance(ThrowingConstructor.class);
+      fail();
+    } catch (ProvisionException expected) {
+      assertContains(expected.getMessage(), "Error injecting constructor, "
+          + "java.lang.UnsupportedOperationException: constructor");
+      assertTrue(expected.getCause() instanceof UnsupportedOperationException);
+      assertContains(expected.getCause().getStackTrace()[1].getClassName(), "InjectorByGuice");
+    }
+
+    try {
+      injector.getInstance(ThrowingMethod.class);
+      fail();
+    } catch (ProvisionException expected) {
+      assertContains(expected.getMessage(), "Error injecting method, "
+          + "java.lang.UnsupportedOperationException: method");
+      assertTrue(expected.getCause() instanceof UnsupportedOperationException);
+    }
+
+    try {
+      injector.getInstance(ErrorThrowingConstructor.class);
+      fail();
+    } catch (InternalError expected) {
+      assertEquals("constructor", expected.getMessage());
+    }
+  }
+
+  static class ErrorThrowingConstructor {
+    @Inject ErrorThrowingConstructor() {
+      throw new InternalError("constructor");
+    }
+  }
+
+  static class ThrowingConstructor {
+    @Inject ThrowingConstructor() {
+      throw new UnsupportedOperationException("constructor");
+    }
+  }
+
+  static class ThrowingMethod {
+    @Inject void inject(JustInTime justInTime) {
+      throw new UnsupportedOperationException("method");
+    }
+  }
 }
@@ -0,0 +1,170 @@
+/**
+ * Copyright (C) 2010 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.inject;
+
+import static com.google.inject.name.Names.named;
+
+import java.lang.ref.SoftReference;
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Array;
+import java.lang.reflect.Type;
+import java.text.DecimalFormat;
+import java.util.Collection;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReference;
+
+import com.google.inject.internal.Lists;
+import com.google.inject.name.Named;
+import com.google.inject.util.Types;
+
+/**
+ * Microbenchmarks for just-in-time providers. Run with {@code main}.
+ */
+public class JitProviderPerformance {
+
+  static final DecimalFormat format = new DecimalFormat();
+
+  static final Class<?>[] RAW_TYPES = {
+      List.class, Set.class, Collection.class, Iterable.class, Queue.class, Comparable.class,
+      Callable.class, Future.class, ThreadLocal.class, AtomicReference.class, WeakReference.class,
+      SoftReference.class,
+  };
+
+  public static void main(String[] args) throws Exception {
+    System.err.println("Resolving keys without a just-in-time binding yet:");
+    for (int i = 0; i < 5; i++) {
+      for (int registrations : new int[] { 1, 10, 100, 1000 }) {
+        missCost(registrations);
+      }
+      System.err.println();
+    }
+
+    System.err.println("Looking up just-in-time bindings which have already been created:");
+    for (int i = 0; i < 5; i++) {
+      for (int threads : new int[] { 1, 2, 4, 8 }) {
+        lookupThroughput(threads);
+      }
+      System.err.println();
+    }
+  }
+
+  /**
+   * Measures the cost of creating the just-in-time binding of a key which is only matched by the
+   * last of {@code registrations} registrations.
+   */
+  static void missCost(final int registrations) {
+    Injector injector = new InjectorBuilder().addModules(new AbstractModule() {
+      @Override
+      @SuppressWarnings("unchecked")
+      protected void configure() {
+        for (int i = 0; i < registrations - 1; i++) {
+          bindJit((Key) Key.get(typeScheme(i), Named.class)).toProvider(new NullJitProvider());
+        }
+        bindJit(new TypeLiteral<Factory<?>>() {})
+            .annotatedWith(Named.class)
+            .toProvider(new FactoryJitProvider());
+      }
+    }).build();
+
+    int count = 20000;
+    long time = System.nanoTime();
+    for (int i = 0; i < count; i++) {
+      injector.getBinding(Key.get(new TypeLiteral<Factory<String>>() {}, named("key" + i)));
+    }
+    time = System.nanoTime() - time;
+
+    System.err.println(registrations + " registrations: "
+        + format.format(time / count) + " ns/miss");
+  }
+
+  /**
+   * Measures how many lookups of already created just-in-time bindings {@code threads} threads can
+   * perform concurrently.
+   */
+  static void lookupThroughput(int threads) throws InterruptedException {
+    final Injector injector = new InjectorBuilder().addModules(new AbstractModule() {
+      @Override
+      protected void configure() {
+        bindJit(new TypeLiteral<Factory<?>>() {})
+            .annotatedWith(Named.class)
+            .toProvider(new FactoryJitProvider());
+      }
+    }).build();
+
+    final List<Key<?>> keys = Lists.newArrayList();
+    for (int i = 0; i < 100; i++) {
+      Key<?> key = Key.get(new TypeLiteral<Factory<String>>() {}, named("key" + i));
+      injector.getBinding(key);
+      keys.add(key);
+    }
+
+    final int count = 200000;
+    final CountDownLatch start = new CountDownLatch(1);
+    final CountDownLatch done = new CountDownLatch(threads);
+    for (int t = 0; t < threads; t++) {
+      new Thread() {
+        @Override public void run() {
+          try {
+            start.await();
+            for (int i = 0; i < count; i++) {
+              injector.getBinding(keys.get(i % keys.size()));
+            }
+          } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+          } finally {
+            done.countDown();
+          }
+        }
+      }.start();
+    }
+
+    long time = System.nanoTime();
+    start.countDown();
+    done.await();
+    time = System.nanoTime() - time;
+
+    long lookupsPerSecond = (long) count * threads * 1000000000L / time;
+    System.err.println(threads + " threads: " + format.format(lookupsPerSecond) + " lookups/s");
+  }
+
+  /** Returns a distinct type scheme for each {@code i}, spread over a few raw types. */
+  static Type typeScheme(int i) {
+    Class<?> arrayType = Array.newInstance(Integer.class, new int[1 + i / RAW_TYPES.length])
+        .getClass();
+    return Types.newParameterizedType(
+        RAW_TYPES[i % RAW_TYPES.length], Types.subtypeOf(arrayType));
+  }
+
+  static class Factory<T> {}
+
+  static class FactoryJitProvider implements JitProvider<Factory<?>> {
+    public Factory<?> get(Key<Factory<?>> key) {
+      return new Factory<Object>();
+    }
+  }
+
+  static class NullJitProvider implements JitProvider<Object> {
+    public Object get(Key<Object> key) {
+      throw new UnsupportedOperationException();
+    }
+  }
+}
@@ -1,14 +1,39 @@
 package com.google.inject;
 
+import static com.google.inject.Asserts.assertContains;
 import static com.google.inject.internal.Preconditions.checkNotNull;
 import static com.google.inject.name.Names.named;
 import static java.lang.annotation.RetentionPolicy.RUNTIME;
 
 import java.lang.annotation.Retention;
 import java.lang.reflect.ParameterizedType;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
 
+import com.google.inject.internal.ImmutableSet;
+import com.google.inject.internal.Iterables;
+import com.google.inject.internal.Lists;
+import com.google.inject.internal.Maps;
 import com.google.inject.name.Named;
 import com.google.inject.name.Names;
+import com.google.inject.spi.Dependency;
+import com.google.inject.spi.JitProviderListener;
+import com.google.inject.spi.ProviderWithDependencies;
+import com.google.inject.util.JitProviderMetrics;
 
 import junit.framework.TestCase;
 
@@ -152,6 +177,701 @@ public class JitProvidersTest extends TestCase {
     });
   }
 
+  public void testFirstRegisteredJitProviderWinsAcrossAnnotationStrategies() {
+    Injector injector = new InjectorBuilder().addModules(new AbstractModule() {
+      @Override
+      protected void configure() {
+        bindJit(new TypeLiteral<Factory<?>>() {})
+            .annotatedWith(Named.class)
+            .toProvider(new TaggingJitProvider("any name"));
+        bindJit(new TypeLiteral<Factory<?>>() {})
+            .annotatedWith(named("foo"))
+            .toProvider(new TaggingJitProvider("foo"));
+        bindJit(new TypeLiteral<Factory<?>>() {})
+            .annotatedWith(named("bar"))
+            .toProvider(new TaggingJitProvider("bar"));
+      }
+    }).build();
+    assertEquals("any name",
+        injector.getInstance(Key.get(new TypeLiteral<Factory<String>>() {}, named("foo"))).tag);
+    assertEquals("any name",
+        injector.getInstance(Key.get(new TypeLiteral<Factory<String>>() {}, named("bar"))).tag);
+
+    injector = new InjectorBuilder().addModules(new AbstractModule() {
+      @Override
+      protected void configure() {
+        bindJit(new TypeLiteral<Factory<?>>() {})
+            .annotatedWith(named("foo"))
+            .toProvider(new TaggingJitProvider("foo"));
+        bindJit(new TypeLiteral<Factory<?>>() {})
+            .annotatedWith(Named.class)
+            .toProvider(new TaggingJitProvider("any name"));
+      }
+    }).build();
+    assertEquals("foo",
+        injector.getInstance(Key.get(new TypeLiteral<Factory<String>>() {}, named("foo"))).tag);
+    assertEquals("any name",
+        injector.getInstance(Key.get(new TypeLiteral<Factory<String>>() {}, named("bar"))).tag);
+  }
+
+  public void testShadowedJitProviderLogged() {
+    final List<LogRecord> logRecords = Lists.newArrayList();
+    Handler handler = new Handler() {
+      public void publish(LogRecord logRecord) {
+        logRecords.add(logRecord);
+      }
+
+      public void flush() {}
+      public void close() {}
+    };
+    Logger logger = Logger.getLogger(Guice.class.getName());
+    logger.addHandler(handler);
+    try {
+      new InjectorBuilder().addModules(new AbstractModule() {
+        @Override
+        protected void configure() {
+          bindJit(new TypeLiteral<Factory<Integer>>() {})
+              .toProvider(JitProvidersTest.<Factory<Integer>>tagging("integer"));
+          bindJit(new TypeLiteral<Factory<? extends Number>>() {})
+              .toProvider(JitProvidersTest.<Factory<? extends Number>>tagging("number"));
+          bindJit(new TypeLiteral<Factory<?>>() {})
+              .annotatedWith(Named.class)
+              .toProvider(new TaggingJitProvider("any name"));
+          bindJit(new TypeLiteral<Factory<?>>() {})
+              .annotatedWith(named("foo"))
+              .toProvider(new TaggingJitProvider("foo"));
+        }
+      }).build();
+    } finally {
+      logger.removeHandler(handler);
+    }
+
+    assertEquals(1, logRecords.size());
+    assertEquals(Level.WARNING, logRecords.get(0).getLevel());
+    assertContains(logRecords.get(0).getMessage(),
+        "The just-in-time provider for Key[type=" + Factory.class.getName()
+            + "<?>, annotation=@" + Named.class.getName() + "(value=foo)]",
+        "is never used",
+        "for Key[type=" + Factory.class.getName() + "<?>, annotation=@" + Named.class.getName()
+            + "] bound at");
+  }
+
+  public void testJitProvidersOfManyTypes() {
+    Injector injector = new InjectorBuilder().addModules(new AbstractModule() {
+      @Override
+      protected void configure() {
+        bindJit(new TypeLiteral<FactoryInterface<?>>() {})
+            .toProvider(new TaggingJitProvider("interface"));
+        bindJit(new TypeLiteral<Factory<Integer>>() {})
+            .toProvider(JitProvidersTest.<Factory<Integer>>tagging("integer"));
+        bindJit(new TypeLiteral<Factory<? extends Number>>() {})
+            .toProvider(JitProvidersTest.<Factory<? extends Number>>tagging("number"));
+        bindJit(new TypeLiteral<Factory<?>>() {})
+            .toProvider(new TaggingJitProvider("any"));
+      }
+    }).build();
+    assertEquals("interface", ((Factory<?>) injector.getInstance(
+        Key.get(new TypeLiteral<FactoryInterface<String>>() {}))).tag);
+    assertEquals("integer",
+        injector.getInstance(Key.get(new TypeLiteral<Factory<Integer>>() {})).tag);
+    assertEquals("number",
+        injector.getInstance(Key.get(new TypeLiteral<Factory<Long>>() {})).tag);
+    assertEquals("any",
+        injector.getInstance(Key.get(new TypeLiteral<Factory<String>>() {})).tag);
+    checkNoBinding(injector, Key.get(new TypeLiteral<Factory<String>>() {}, named("foo")));
+  }
+
+  public void testMissingJitBindingFailsConsistently() {
+    Injector injector = new InjectorBuilder().addModules(new AbstractModule() {
+      @Override
+      protected void configure() {
+        bindJit(new TypeLiteral<Factory<?>>() {})
+            .annotatedWith(named("foo"))
+            .toProvider(new TaggingJitProvider("foo"));
+      }
+    }).build();
+    Key<Factory<String>> key = Key.get(new TypeLiteral<Factory<String>>() {}, named("bar"));
+    String message = null;
+    for (int i = 0; i < 3; i++) {
+      try {
+        injector.getInstance(key);
+        fail();
+      } catch (ConfigurationException e) {
+        if (message == null) {
+          message = e.getMessage();
+        } else {
+          assertEquals(message, e.getMessage());
+        }
+      }
+      assertNull(injector.getExistingBinding(key));
+    }
+  }
+
+  public void testChildJitProviderResolvesKeyMissingInParent() {
+    Injector parent = new InjectorBuilder().build();
+    Key<Factory<String>> key = Key.get(new TypeLiteral<Factory<String>>() {}, named("foo"));
+    checkNoBinding(parent, key);
+
+    Injector child = parent.createChildInjector(new AbstractModule() {
+      @Override
+      protected void configure() {
+        bindJit(new TypeLiteral<Factory<?>>() {})
+            .annotatedWith(Named.class)
+            .toProvider(new TaggingJitProvider("child"));
+      }
+    });
+    assertEquals("child", child.getInstance(key).tag);
+    checkNoBinding(parent, key);
+  }
+
+  public void testJitProvidersOfAncestorsResolvedAtTheirLevel() {
+    Injector root = new InjectorBuilder().addModules(new AbstractModule() {
+      @Override
+      protected void configure() {
+        bindJit(new TypeLiteral<Factory<?>>() {})
+            .annotatedWith(named("root"))
+            .toProvider(new TaggingJitProvider("root"));
+      }
+    }).build();
+    Injector middle = root.createChildInjector(new AbstractModule() {
+      @Override
+      protected void configure() {
+        bindJit(new TypeLiteral<Factory<?>>() {})
+            .annotatedWith(Named.class)
+            .toProvider(new TaggingJitProvider("middle"));
+      }
+    });
+    Injector leaf = middle.createChildInjector();
+
+    Key<Factory<String>> rootKey = Key.get(new TypeLiteral<Factory<String>>() {}, named("root"));
+    assertEquals("root", leaf.getInstance(rootKey).tag);
+    assertNotNull(root.getExistingBinding(rootKey));
+
+    Key<Factory<String>> middleKey = Key.get(new TypeLiteral<Factory<String>>() {}, named("foo"));
+    assertEquals("middle", leaf.getInstance(middleKey).tag);
+    assertNotNull(middle.getExistingBinding(middleKey));
+    checkNoBinding(root, middleKey);
+
+    checkNoBinding(leaf, Key.get(new TypeLiteral<Factory<String>>() {}, AnAnnotation.class));
+  }
+
+  public void testSlowJitProviderDoesNotBlockUnrelatedKeys() throws Exception {
+    final Injector injector = new InjectorBuilder().addModules(new AbstractModule() {
+      @Override
+      protected void configure() {
+        bindJit(new TypeLiteral<Factory<?>>() {})
+            .annotatedWith(named("slow"))
+            .toProvider(SlowJitProvider.class);
+        bindJit(new TypeLiteral<Factory<?>>() {})
+            .annotatedWith(named("fast"))
+            .toProvider(new TaggingJitProvider("fast"));
+      }
+    }).build();
+
+    SlowJitProvider.constructed = new CountDownLatch(1);
+    SlowJitProvider.proceed = new CountDownLatch(1);
+    FutureTask<Factory<String>> slow = new FutureTask<Factory<String>>(
+        new Callable<Factory<String>>() {
+          public Factory<String> call() {
+            return injector.getInstance(
+                Key.get(new TypeLiteral<Factory<String>>() {}, named("slow")));
+          }
+        });
+    new Thread(slow).start();
+    assertTrue(SlowJitProvider.constructed.await(10, TimeUnit.SECONDS));
+
+    // the slow provider is being constructed, which must not prevent resolving other keys
+    assertEquals("fast", injector.getInstance(
+        Key.get(new TypeLiteral<Factory<String>>() {}, named("fast"))).tag);
+    SlowJitProvider.proceed.countDown();
+    assertEquals(String.class, slow.get(10, TimeUnit.SECONDS).getKlass());
+  }
+
+  public void testJitProviderDependingOnItsOwnKey() {
+    Injector injector = new InjectorBuilder().addModules(new AbstractModule() {
+      @Override
+      protected void configure() {
+        bindJit(new TypeLiteral<Factory<?>>() {})
+            .annotatedWith(named("self"))
+            .toProvider(SelfDependentJitProvider.class);
+      }
+    }).build();
+    try {
+      injector.getInstance(Key.get(new TypeLiteral<Factory<String>>() {}, named("self")));
+      fail();
+    } catch (ProvisionException expected) {
+      assertContains(expected.getMessage(),
+          "The just-in-time provider for " + Factory.class.getName(), "depends on");
+    }
+  }
+
+  public void testJitProviderFailingToConstructFailsOnProvision() {
+    Injector injector = new InjectorBuilder().addModules(new AbstractModule() {
+      @Override
+      protected void configure() {
+        bindJit(new TypeLiteral<Factory<?>>() {})
+            .annotatedWith(named("broken"))
+            .toProvider(BrokenJitProvider.class);
+      }
+    }).build();
+    Key<Factory<String>> key = Key.get(new TypeLiteral<Factory<String>>() {}, named("broken"));
+    Binding<Factory<String>> binding = injector.getBinding(key);
+    for (int i = 0; i < 2; i++) {
+      try {
+        binding.getProvider().get();
+        fail();
+      } catch (ProvisionException expected) {
+        assertContains(expected.getMessage(), "broken just-in-time provider");
+      }
+    }
+    assertEquals(2, BrokenJitProvider.constructions);
+  }
+
+  public void testMaximumJitProviderBindings() {
+    Injector injector = new InjectorBuilder()
+        .maximumJitProviderBindings(2)
+        .addModules(new AbstractModule() {
+          @Override
+          protected void configure() {
+            bindJit(new TypeLiteral<Factory<?>>() {})
+                .annotatedWith(Named.class)
+                .toProvider(new FactoryJitProvider());
+          }
+        })
+        .build();
+    Key<Factory<String>> a = Key.get(new TypeLiteral<Factory<String>>() {}, named("a"));
+    Key<Factory<String>> b = Key.get(new TypeLiteral<Factory<String>>() {}, named("b"));
+    Key<Factory<String>> c = Key.get(new TypeLiteral<Factory<String>>() {}, named("c"));
+
+    Binding<Factory<String>> bindingOfA = injector.getBinding(a);
+    assertSame(bindingOfA, injector.getBinding(a));
+    injector.getBinding(b);
+    injector.getBinding(c);
+    assertFalse(injector.getAllBindings().containsKey(a));
+    assertTrue(injector.getAllBindings().containsKey(c));
+
+    // evicted bindings are created again
+    assertNotSame(bindingOfA, injector.getBinding(a));
+    assertEquals(String.class, injector.getInstance(a).getKlass());
+  }
+
+  public void testMaximumJitProviderBindingsOnlyLimitsJitProviderBindings() {
+    Injector injector = new InjectorBuilder()
+        .maximumJitProviderBindings(1)
+        .addModules(new AbstractModule() {
+          @Override
+          protected void configure() {
+            bind(String.class).toInstance("explicit");
+            bindJit(new TypeLiteral<Factory<?>>() {})
+                .annotatedWith(Named.class)
+                .toProvider(new FactoryJitProvider());
+          }
+        })
+        .build();
+
+    // other bindings are never evicted, so their providers are cached
+    assertSame(injector.getProvider(String.class), injector.getProvider(String.class));
+    assertSame(injector.getProvider(BatchInjected.class),
+        injector.getProvider(BatchInjected.class));
+
+    // providers of evictable bindings aren't, so that they don't outlive their bindings
+    Key<Factory<String>> a = Key.get(new TypeLiteral<Factory<String>>() {}, named("a"));
+    assertNotSame(injector.getProvider(a), injector.getProvider(a));
+  }
+
+  public void testMaximumJitProviderBindingsKeepsScopedBindings() {
+    Injector injector = new InjectorBuilder()
+        .maximumJitProviderBindings(0)
+        .addModules(new AbstractModule() {
+          @Override
+          protected void configure() {
+            bindJit(new TypeLiteral<Factory<?>>() {})
+                .annotatedWith(Named.class)
+                .toProvider(new FactoryJitProvider())
+                .in(Singleton.class);
+          }
+        })
+        .build();
+    Key<Factory<String>> a = Key.get(new TypeLiteral<Factory<String>>() {}, named("a"));
+    Factory<String> instance = injector.getInstance(a);
+    for (int i = 0; i < 10; i++) {
+      injector.getInstance(Key.get(new TypeLiteral<Factory<String>>() {}, named("key" + i)));
+    }
+    assertSame(instance, injector.getInstance(a));
+  }
+
+  public void testBatchJitProvider() {
+    final CountingBatchJitProvider batchJitProvider = new CountingBatchJitProvider();
+    Injector injector = new InjectorBuilder().addModules(new AbstractModule() {
+      @Override
+      protected void configure() {
+        bindJit(new TypeLiteral<Factory<?>>() {})
+            .annotatedWith(Named.class)
+            .toProvider(batchJitProvider);
+      }
+    }).build();
+
+    BatchInjected batchInjected = injector.getInstance(BatchInjected.class);
+    assertEquals("a", batchInjected.a.tag);
+    assertEquals("b", batchInjected.b.tag);
+    assertEquals(Integer.class, batchInjected.b.getKlass());
+    assertEquals("c", batchInjected.c.tag);
+    assertEquals("d", batchInjected.d.tag);
+    assertEquals("e", batchInjected.e.tag);
+
+    // one batch for the constructor, one for the method, and the field on its own
+    assertEquals(2, batchJitProvider.getAllCalls);
+    assertEquals(1, batchJitProvider.getCalls);
+  }
+
+  public void testBatchJitProviderCanonicalizesKeys() {
+    final CanonicalizingBatchJitProvider batchJitProvider = new CanonicalizingBatchJitProvider();
+    Injector injector = new InjectorBuilder().addModules(new AbstractModule() {
+      @Override
+      protected void configure() {
+        bindJit(new TypeLiteral<Factory<?>>() {})
+            .annotatedWith(Named.class)
+            .toProvider(batchJitProvider);
+      }
+    }).build();
+
+    BatchInjected batchInjected = injector.getInstance(BatchInjected.class);
+    assertEquals("a", batchInjected.a.tag);
+    assertEquals("b", batchInjected.b.tag);
+    assertEquals("c", batchInjected.c.tag);
+    assertEquals("c", batchInjected.d.tag);
+
+    // "d" is provided by the binding of "c", which leaves the method nothing to batch
+    assertEquals(1, batchJitProvider.getAllCalls);
+    assertEquals(3, batchJitProvider.getCalls);
+  }
+
+  public void testWarmUpJitBindings() {
+    AbstractModule module = new AbstractModule() {
+      @Override
+      protected void configure() {
+        bindJit(new TypeLiteral<Factory<?>>() {})
+            .annotatedWith(named("counted"))
+            .toProvider(CountingJitProvider.class);
+        bindJit(new TypeLiteral<Factory<?>>() {})
+            .annotatedWith(named("singleton"))
+            .toProvider(CountingJitProvider.class)
+            .in(Singleton.class);
+        bind(WarmedUp.class);
+      }
+    };
+
+    CountingJitProvider.constructed = 0;
+    CountingJitProvider.provided = 0;
+    new InjectorBuilder().stage(Stage.PRODUCTION).addModules(module).build();
+    // only the singleton is loaded
+    assertEquals(1, CountingJitProvider.constructed);
+    assertEquals(1, CountingJitProvider.provided);
+
+    CountingJitProvider.constructed = 0;
+    CountingJitProvider.provided = 0;
+    Injector injector = new InjectorBuilder()
+        .stage(Stage.PRODUCTION)
+        .warmUpJitBindings()
+        .addModules(module)
+        .build();
+    assertEquals(2, CountingJitProvider.constructed);
+    assertEquals(1, CountingJitProvider.provided); // the singleton
+
+    injector.getInstance(WarmedUp.class);
+    assertEquals(2, CountingJitProvider.constructed);
+    assertEquals(2, CountingJitProvider.provided);
+  }
+
+  public void testWarmUpJitBindingsRequiringExplicitBindings() {
+    Injector injector = new InjectorBuilder()
+        .stage(Stage.PRODUCTION)
+        .requireExplicitBindings()
+        .warmUpJitBindings()
+        .addModules(new AbstractModule() {
+          @Override
+          protected void configure() {
+            bind(Object.class).toProvider(new ProviderWithDependencies<Object>() {
+              public Object get() {
+                return new Object();
+              }
+              public Set<Dependency<?>> getDependencies() {
+                return ImmutableSet.<Dependency<?>>of(Dependency.get(Key.get(WarmedUp.class)));
+              }
+            });
+          }
+        })
+        .build();
+    assertNull(injector.getExistingBinding(Key.get(WarmedUp.class)));
+  }
+
+  public void testJitProviderObtainedOncePerBinding() {
+    final InjectedJitProvider injectedJitProvider = new InjectedJitProvider();
+    AbstractModule module = new AbstractModule() {
+      @Override
+      protected void configure() {
+        bindJit(new TypeLiteral<Factory<?>>() {}).toProvider(CountingJitProvider.class);
+        bindJit(new TypeLiteral<FactoryInterface<?>>() {}).toProvider(injectedJitProvider);
+      }
+    };
+
+    CountingJitProvider.constructed = 0;
+    Injector injector = new InjectorBuilder().addModules(module).build();
+    injector.getInstance(new Key<Factory<String>>() {});
+    injector.getInstance(new Key<Factory<Integer>>() {});
+    injector.getInstance(new Key<FactoryInterface<String>>() {});
+    injector.getInstance(new Key<FactoryInterface<Integer>>() {});
+    assertEquals(1, CountingJitProvider.constructed);
+    assertEquals(1, injectedJitProvider.injected);
+
+    CountingJitProvider.constructed = 0;
+    injectedJitProvider.injected = 0;
+    injector = new InjectorBuilder().disableJitProviderCaching().addModules(module).build();
+    injector.getInstance(new Key<Factory<String>>() {});
+    injector.getInstance(new Key<Factory<Integer>>() {});
+    injector.getInstance(new Key<FactoryInterface<String>>() {});
+    injector.getInstance(new Key<FactoryInterface<Integer>>() {});
+    assertEquals(2, CountingJitProvider.constructed);
+    assertEquals(2, injectedJitProvider.injected);
+  }
+
+  public void testAsyncJitProvider() throws Exception {
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      final AsyncTaggingJitProvider asyncJitProvider = new AsyncTaggingJitProvider(executor);
+      Injector injector = new InjectorBuilder().addModules(new AbstractModule() {
+        @Override
+        protected void configure() {
+          bindJit(new TypeLiteral<Factory<?>>() {})
+              .annotatedWith(Named.class)
+              .toProvider(asyncJitProvider);
+        }
+      }).build();
+
+      // each resolution waits for the other to start, so they must run concurrently
+      AsyncInjected asyncInjected = injector.getInstance(AsyncInjected.class);
+      assertEquals("a", asyncInjected.a.get(10, TimeUnit.SECONDS).tag);
+      assertEquals(Integer.class, asyncInjected.b.get(10, TimeUnit.SECONDS).getKlass());
+      assertEquals(0, asyncJitProvider.started.getCount());
+
+      // other keys are still provided synchronously
+      Key<Factory<String>> key = Key.get(new TypeLiteral<Factory<String>>() {}, named("c"));
+      assertEquals("c", injector.getInstance(key).tag);
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  public void testFutureOfSynchronousJitProvider() throws Exception {
+    Injector injector = new InjectorBuilder().addModules(new AbstractModule() {
+      @Override
+      protected void configure() {
+        bindJit(new TypeLiteral<Factory<?>>() {})
+            .annotatedWith(named("sync"))
+            .toProvider(new TaggingJitProvider("sync"));
+      }
+    }).build();
+
+    Future<Factory<String>> future = injector.getInstance(
+        Key.get(new TypeLiteral<Future<Factory<String>>>() {}, named("sync")));
+    assertTrue(future.isDone());
+    assertEquals("sync", future.get().tag);
+    checkNoBinding(injector,
+        Key.get(new TypeLiteral<Future<Factory<String>>>() {}, named("other")));
+  }
+
+  public void testFutureSharesScopeOfInstance() throws Exception {
+    CountingJitProvider.provided = 0;
+    Injector injector = new InjectorBuilder().addModules(new AbstractModule() {
+      @Override
+      protected void configure() {
+        bindJit(new TypeLiteral<Factory<?>>() {})
+            .annotatedWith(named("scoped"))
+            .toProvider(new CountingJitProvider())
+            .in(Singleton.class);
+      }
+    }).build();
+
+    Future<Factory<String>> future = injector.getInstance(
+        Key.get(new TypeLiteral<Future<Factory<String>>>() {}, named("scoped")));
+    Factory<String> instance = injector.getInstance(
+        Key.get(new TypeLiteral<Factory<String>>() {}, named("scoped")));
+    assertSame(instance, future.get());
+    assertEquals(1, CountingJitProvider.provided);
+  }
+
+  public void testFutureOfScopedAsyncJitProviderFails() {
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      final AsyncTaggingJitProvider asyncJitProvider = new AsyncTaggingJitProvider(executor);
+      Injector injector = new InjectorBuilder().addModules(new AbstractModule() {
+        @Override
+        protected void configure() {
+          bindJit(new TypeLiteral<Factory<?>>() {})
+              .annotatedWith(named("scoped"))
+              .toProvider(asyncJitProvider)
+              .in(Singleton.class);
+        }
+      }).build();
+
+      try {
+        injector.getInstance(
+            Key.get(new TypeLiteral<Future<Factory<String>>>() {}, named("scoped")));
+        fail();
+      } catch (ProvisionException expected) {
+        assertContains(expected.getMessage(), "Cannot provide a future of",
+            "because it is scoped");
+      }
+      assertEquals(2, asyncJitProvider.started.getCount());
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  public void testFutureCompletingWithNullFails() throws Exception {
+    Injector injector = new InjectorBuilder().addModules(new AbstractModule() {
+      @Override
+      protected void configure() {
+        bindJit(new TypeLiteral<Factory<?>>() {})
+            .annotatedWith(named("null"))
+            .toProvider(new NullAsyncJitProvider());
+      }
+    }).build();
+
+    Future<Factory<String>> future = injector.getInstance(
+        Key.get(new TypeLiteral<Future<Factory<String>>>() {}, named("null")));
+    try {
+      future.get();
+      fail();
+    } catch (ExecutionException expected) {
+      assertTrue(expected.getCause() instanceof ProvisionException);
+      assertContains(expected.getCause().getMessage(), "completed with null");
+    }
+  }
+
+  public void testProvidedJustInTimeByProviderSharedByKeysOfType() {
+    CountedFactoryJitProvider.constructed = 0;
+    Injector parent = new InjectorBuilder().build();
+    for (int i = 0; i < 2; i++) {
+      Injector child = parent.createChildInjector();
+      assertEquals(String.class,
+          child.getInstance(new Key<CountedFactory<String>>() {}).getKlass());
+      assertEquals(Integer.class,
+          child.getInstance(new Key<CountedFactory<Integer>>() {}).getKlass());
+    }
+    // the bindings are created in the parent, with a single provider
+    assertEquals(1, CountedFactoryJitProvider.constructed);
+
+    CountedFactoryJitProvider.constructed = 0;
+    Injector injector = new InjectorBuilder().disableJitProviderCaching().build();
+    injector.getInstance(new Key<CountedFactory<String>>() {});
+    injector.getInstance(new Key<CountedFactory<Integer>>() {});
+    assertEquals(2, CountedFactoryJitProvider.constructed);
+  }
+
+  public void testJitProviderMetrics() {
+    final JitProviderMetrics metrics = new JitProviderMetrics();
+    Injector injector = new InjectorBuilder().addModules(new AbstractModule() {
+      @Override
+      protected void configure() {
+        bindListener(metrics);
+        bindJit(new TypeLiteral<Factory<?>>() {})
+            .annotatedWith(Named.class)
+            .toProvider(new TaggingJitProvider("named"));
+      }
+    }).build();
+
+    injector.getInstance(Key.get(new TypeLiteral<Factory<String>>() {}, named("a")));
+    injector.getInstance(Key.get(new TypeLiteral<Factory<String>>() {}, named("a")));
+    injector.getInstance(Key.get(new TypeLiteral<Factory<Integer>>() {}, named("b")));
+    checkNoBinding(injector, Key.get(new TypeLiteral<Factory<String>>() {}, AnAnnotation.class));
+
+    JitProviderMetrics.Metrics registration
+        = Iterables.getOnlyElement(metrics.getMetrics().values());
+    assertEquals(2, registration.getLookups().getCount());
+    assertEquals(3, registration.getProvisions().getCount());
+    assertEquals(0, registration.getFailures());
+    assertTrue(registration.getProvisions().getPercentileNanos(50)
+        <= registration.getProvisions().getMaximumNanos());
+    assertEquals(1, metrics.getUnmatchedLookups().getCount());
+  }
+
+  public void testFailingJitProviderListener() {
+    Injector injector = new InjectorBuilder().addModules(new AbstractModule() {
+      @Override
+      protected void configure() {
+        bindListener(new JitProviderListener() {
+          public void onLookup(Key<?> key, JitBinding<?> jitBinding, long nanos) {}
+          public void onProvision(Key<?> key, JitBinding<?> jitBinding, long nanos,
+              boolean failed) {
+            throw new UnsupportedOperationException("listener failed");
+          }
+        });
+        bindJit(new TypeLiteral<Factory<?>>() {})
+            .annotatedWith(Named.class)
+            .toProvider(new TaggingJitProvider("named"));
+      }
+    }).build();
+
+    try {
+      injector.getInstance(Key.get(new TypeLiteral<Factory<String>>() {}, named("a")));
+      fail();
+    } catch (ProvisionException e) {
+      assertContains(e.getMessage(), "Error notifying JitProviderListener", "listener failed");
+    }
+  }
+
+  public void testCanonicalizingJitProviderSharesScopedInstances() {
+    final NameIgnoringJitProvider jitProvider = new NameIgnoringJitProvider();
+    Injector injector = new InjectorBuilder().addModules(new AbstractModule() {
+      @Override
+      protected void configure() {
+        bindJit(new TypeLiteral<Factory<?>>() {})
+            .annotatedWith(Named.class)
+            .toProvider(jitProvider)
+            .in(Singleton.class);
+      }
+    }).build();
+
+    Factory<String> foo
+        = injector.getInstance(Key.get(new TypeLiteral<Factory<String>>() {}, named("foo")));
+    Factory<String> bar
+        = injector.getInstance(Key.get(new TypeLiteral<Factory<String>>() {}, named("bar")));
+    Factory<Integer> integer
+        = injector.getInstance(Key.get(new TypeLiteral<Factory<Integer>>() {}, named("foo")));
+    assertSame(foo, bar);
+    assertSame(foo,
+        injector.getInstance(Key.get(new TypeLiteral<Factory<String>>() {}, named(""))));
+    assertEquals(Integer.class, integer.getKlass());
+    assertEquals(2, jitProvider.provided);
+  }
+
+  public void testCanonicalizingJitProviderRejectsKeyItCannotProvide() {
+    Injector injector = new InjectorBuilder().addModules(new AbstractModule() {
+      @Override
+      protected void configure() {
+        bindJit(new TypeLiteral<Factory<?>>() {})
+            .annotatedWith(AnAnnotation.class)
+            .toProvider(new NameIgnoringJitProvider());
+      }
+    }).build();
+
+    try {
+      injector.getInstance(Key.get(new TypeLiteral<Factory<String>>() {}, AnAnnotation.class));
+      fail();
+    } catch (ProvisionException e) {
+      assertContains(e.getMessage(), "canonicalizes it to " + Factory.class.getName()
+          + "<java.lang.String> annotated with @" + Named.class.getName() + "(value=)");
+    }
+  }
+
+  public void testCanonicalizingJitProviderOfGenericAnnotatedType() {
+    Injector injector = new InjectorBuilder().build();
+    ErasedFactory<String> factory = injector.getInstance(new Key<ErasedFactory<String>>() {});
+    assertEquals(Object.class, factory.getKlass());
+    assertSame(factory, injector.getInstance(new Key<ErasedFactory<Integer>>() {}));
+  }
+
   private void check(Injector injector, Key<? extends FactoryInterface<String>> key) {
     FactoryInterface<String> instance1 = injector.getInstance(key);
     FactoryInterface<String> instance2 = injector.getInstance(key);
@@ -164,7 +884,7 @@ public class JitProvidersTest extends TestCase {
     assertTrue("scoping is incorrect", instance1 == instance2);
   }
   
-  private void checkNoBinding(Injector injector, Key<? extends FactoryInterface<String>> key) {
+  private void checkNoBinding(Injector injector, Key<?> key) {
     try {
       injector.getInstance(key);
       fail();
@@ -178,6 +898,7 @@ public class JitProvidersTest extends TestCase {
 
   static class Factory<T> implements FactoryInterface<T> {
     protected final Class<T> klass;
+    String tag;
     Factory(Class<T> klass) {
       this.klass = klass;
     }
@@ -212,6 +933,241 @@ public class JitProvidersTest extends TestCase {
     }
   }
   
+  /** Provides the same instance for all the names of a type. */
+  static class NameIgnoringJitProvider extends FactoryJitProvider
+      implements CanonicalizingJitProvider<Factory<?>> {
+    int provided;
+
+    @Override
+    public Factory<?> get(Key<Factory<?>> key) {
+      provided++;
+      return super.get(key);
+    }
+
+    public Key<? extends Factory<?>> canonicalize(Key<Factory<?>> key) {
+      return Key.get(key.getTypeLiteral(), named(""));
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  static <T> JitProvider<T> tagging(String tag) {
+    return (JitProvider) new TaggingJitProvider(tag);
+  }
+
+  static class TaggingJitProvider extends FactoryJitProvider {
+    private final String tag;
+    TaggingJitProvider(String tag) {
+      this.tag = tag;
+    }
+    @Override
+    public Factory<?> get(Key<Factory<?>> key) {
+      Factory<?> factory = super.get(key);
+      factory.tag = tag;
+      return factory;
+    }
+  }
+
+  static class SlowJitProvider extends FactoryJitProvider {
+    static CountDownLatch constructed;
+    static CountDownLatch proceed;
+    SlowJitProvider() throws InterruptedException {
+      constructed.countDown();
+      if (!proceed.await(10, TimeUnit.SECONDS)) {
+        throw new IllegalStateException("other keys could not be resolved in the meantime");
+      }
+    }
+  }
+
+  static class SelfDependentJitProvider extends FactoryJitProvider {
+    @Inject void lookUpSelf(Injector injector) {
+      injector.getInstance(Key.get(new TypeLiteral<Factory<String>>() {}, named("self")));
+    }
+  }
+
+  static class BrokenJitProvider extends FactoryJitProvider {
+    static int constructions;
+    BrokenJitProvider() {
+      constructions++;
+      throw new UnsupportedOperationException("broken just-in-time provider");
+    }
+  }
+
+  static class CountingBatchJitProvider
+      extends FactoryJitProvider implements BatchJitProvider<Factory<?>> {
+    int getCalls;
+    int getAllCalls;
+
+    @Override
+    public Factory<?> get(Key<Factory<?>> key) {
+      getCalls++;
+      return provide(key);
+    }
+
+    public Map<Key<Factory<?>>, Factory<?>> getAll(Collection<Key<Factory<?>>> keys) {
+      getAllCalls++;
+      Map<Key<Factory<?>>, Factory<?>> instances = Maps.newHashMap();
+      for (Key<Factory<?>> key : keys) {
+        instances.put(key, provide(key));
+      }
+      return instances;
+    }
+
+    private Factory<?> provide(Key<Factory<?>> key) {
+      Factory<?> factory = super.get(key);
+      factory.tag = ((Named) key.getAnnotation()).value();
+      return factory;
+    }
+  }
+
+  /** Provides the instance of "c" for "d". */
+  static class CanonicalizingBatchJitProvider extends CountingBatchJitProvider
+      implements CanonicalizingJitProvider<Factory<?>> {
+    public Key<? extends Factory<?>> canonicalize(Key<Factory<?>> key) {
+      return ((Named) key.getAnnotation()).value().equals("d")
+          ? Key.get(key.getTypeLiteral(), named("c"))
+          : key;
+    }
+  }
+
+  static class BatchInjected {
+    final Factory<String> a;
+    final Factory<Integer> b;
+    Factory<String> c;
+    Factory<String> d;
+    @Inject @Named("e") Factory<String> e;
+
+    @Inject BatchInjected(@Named("a") Factory<String> a, @Named("b") Factory<Integer> b) {
+      this.a = a;
+      this.b = b;
+    }
+
+    @Inject void setCD(@Named("c") Factory<String> c, @Named("d") Factory<String> d) {
+      this.c = c;
+      this.d = d;
+    }
+  }
+
+  static class CountingJitProvider extends FactoryJitProvider {
+    static int constructed;
+    static int provided;
+
+    CountingJitProvider() {
+      constructed++;
+    }
+
+    @Override
+    public Factory<?> get(Key<Factory<?>> key) {
+      provided++;
+      return super.get(key);
+    }
+  }
+
+  static class InjectedJitProvider extends FactoryJitProvider {
+    int injected;
+    @Inject void count() {
+      injected++;
+    }
+  }
+
+  static class AsyncTaggingJitProvider
+      extends FactoryJitProvider implements AsyncJitProvider<Factory<?>> {
+    final CountDownLatch started = new CountDownLatch(2);
+    private final ExecutorService executor;
+
+    AsyncTaggingJitProvider(ExecutorService executor) {
+      this.executor = executor;
+    }
+
+    @Override
+    public Factory<?> get(Key<Factory<?>> key) {
+      Factory<?> factory = super.get(key);
+      factory.tag = ((Named) key.getAnnotation()).value();
+      return factory;
+    }
+
+    public Future<? extends Factory<?>> getAsync(final Key<Factory<?>> key) {
+      return executor.submit(new Callable<Factory<?>>() {
+        public Factory<?> call() throws InterruptedException {
+          started.countDown();
+          if (!started.await(10, TimeUnit.SECONDS)) {
+            throw new IllegalStateException("resolutions did not run concurrently");
+          }
+          return get(key);
+        }
+      });
+    }
+  }
+
+  static class NullAsyncJitProvider
+      extends FactoryJitProvider implements AsyncJitProvider<Factory<?>> {
+    public Future<? extends Factory<?>> getAsync(Key<Factory<?>> key) {
+      FutureTask<Factory<?>> future = new FutureTask<Factory<?>>(new Callable<Factory<?>>() {
+        public Factory<?> call() {
+          return null;
+        }
+      });
+      future.run();
+      return future;
+    }
+  }
+
+  static class AsyncInjected {
+    final Future<Factory<String>> a;
+    final Future<Factory<Integer>> b;
+
+    @Inject AsyncInjected(@Named("a") Future<Factory<String>> a,
+        @Named("b") Future<Factory<Integer>> b) {
+      this.a = a;
+      this.b = b;
+    }
+  }
+
+  @ProvidedJustInTimeBy(CountedFactoryJitProvider.class)
+  static class CountedFactory<T> extends Factory<T> {
+    CountedFactory(Class<T> klass) {
+      super(klass);
+    }
+  }
+
+  @Singleton @ProvidedJustInTimeBy(ErasingJitProvider.class)
+  static class ErasedFactory<T> extends Factory<T> {
+    ErasedFactory(Class<T> klass) {
+      super(klass);
+    }
+  }
+
+  /** Provides the factory of Object for all the keys of its type. */
+  static class ErasingJitProvider implements CanonicalizingJitProvider<ErasedFactory<?>> {
+    @SuppressWarnings("unchecked")
+    public ErasedFactory<?> get(Key<ErasedFactory<?>> key) {
+      ParameterizedType parametrizedType = (ParameterizedType) key.getTypeLiteral().getType();
+      return new ErasedFactory((Class) parametrizedType.getActualTypeArguments()[0]);
+    }
+
+    public Key<? extends ErasedFactory<?>> canonicalize(Key<ErasedFactory<?>> key) {
+      return new Key<ErasedFactory<Object>>() {};
+    }
+  }
+
+  static class CountedFactoryJitProvider implements JitProvider<CountedFactory<?>> {
+    static int constructed;
+
+    CountedFactoryJitProvider() {
+      constructed++;
+    }
+
+    @SuppressWarnings("unchecked")
+    public CountedFactory<?> get(Key<CountedFactory<?>> key) {
+      ParameterizedType parametrizedType = (ParameterizedType) key.getTypeLiteral().getType();
+      return new CountedFactory((Class) parametrizedType.getActualTypeArguments()[0]);
+    }
+  }
+
+  static class WarmedUp {
+    @Inject @Named("counted") Factory<String> counted;
+    @Inject @Named("singleton") Factory<String> singleton;
+  }
+
   static class JitProviderRequiringInjection extends FactoryJitProvider {
     @Inject Injector injector;
   }
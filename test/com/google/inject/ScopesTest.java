@@ -34,6 +34,14 @@ import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import junit.framework.TestCase;
 
 /**
@@ -116,6 +124,154 @@ public class ScopesTest extends TestCase {
         Guice.createInjector().getInstance(AnnotatedSingleton.class));
   }
 
+  public void testUnrelatedSingletonsAreCreatedInParallel() throws Exception {
+    final CountDownLatch constructing = new CountDownLatch(2);
+    final Injector injector = Guice.createInjector(new AbstractModule() {
+      protected void configure() {
+        bind(CountDownLatch.class).toInstance(constructing);
+      }
+    });
+
+    // each singleton waits for the other to be constructing
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      Future<AwaitingSingleton> other = executor.submit(new Callable<AwaitingSingleton>() {
+        public AwaitingSingleton call() {
+          return injector.getInstance(AwaitingSingleton.class);
+        }
+      });
+      assertTrue(injector.getInstance(OtherAwaitingSingleton.class).awaited);
+      assertTrue(other.get(10, TimeUnit.SECONDS).awaited);
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Singleton
+  static class AwaitingSingleton {
+    final boolean awaited;
+
+    @Inject AwaitingSingleton(CountDownLatch constructing) throws InterruptedException {
+      constructing.countDown();
+      awaited = constructing.await(10, TimeUnit.SECONDS);
+    }
+  }
+
+  @Singleton
+  static class OtherAwaitingSingleton extends AwaitingSingleton {
+    @Inject OtherAwaitingSingleton(CountDownLatch constructing) throws InterruptedException {
+      super(constructing);
+    }
+  }
+
+  public void testSingletonCycleAcrossThreadsDoesNotDeadlock() throws Exception {
+    CycleAImpl.constructions.set(0);
+    CycleBImpl.constructions.set(0);
+    final CountDownLatch constructing = new CountDownLatch(2);
+    final Injector injector = Guice.createInjector(new AbstractModule() {
+      protected void configure() {
+        bind(CountDownLatch.class).toInstance(constructing);
+        bind(CycleA.class).to(CycleAImpl.class);
+        bind(CycleB.class).to(CycleBImpl.class);
+      }
+    });
+
+    // each thread holds one singleton's lock and needs the other's
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      Future<CycleA> futureA = executor.submit(new Callable<CycleA>() {
+        public CycleA call() {
+          return injector.getInstance(CycleA.class);
+        }
+      });
+      Future<CycleB> futureB = executor.submit(new Callable<CycleB>() {
+        public CycleB call() {
+          return injector.getInstance(CycleB.class);
+        }
+      });
+
+      // the thread closing the cycle fails, and the other creates both singletons
+      CycleA a = getOrNull(futureA);
+      CycleB b = getOrNull(futureB);
+      assertTrue((a == null) != (b == null));
+      if (a == null) {
+        a = b.a().self();
+      } else {
+        b = a.b().self();
+      }
+      assertSame(a, injector.getInstance(CycleA.class));
+      assertSame(b, injector.getInstance(CycleB.class));
+      assertSame(a, b.a().self());
+      assertSame(b, a.b().self());
+      assertEquals(1, CycleAImpl.constructions.get());
+      assertEquals(1, CycleBImpl.constructions.get());
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  /** Returns the future's value, or null if it failed because of a singleton cycle. */
+  private <T> T getOrNull(Future<T> future) throws Exception {
+    try {
+      return future.get(10, TimeUnit.SECONDS);
+    } catch (ExecutionException e) {
+      ProvisionException cause = (ProvisionException) e.getCause();
+      assertContains(cause.getMessage(), "Cannot create singleton",
+          "is creating it while waiting for a singleton this thread is creating");
+      return null;
+    }
+  }
+
+  /** Waits for the other thread, once each thread holds the lock of its singleton. */
+  static class Rendezvous {
+    @Inject Rendezvous(CountDownLatch constructing) throws InterruptedException {
+      constructing.countDown();
+      constructing.await(10, TimeUnit.SECONDS);
+    }
+  }
+
+  public interface CycleA {
+    CycleA self();
+    CycleB b();
+  }
+
+  public interface CycleB {
+    CycleB self();
+    CycleA a();
+  }
+
+  @Singleton
+  static class CycleAImpl implements CycleA {
+    static final AtomicInteger constructions = new AtomicInteger();
+    final CycleB b;
+    @Inject CycleAImpl(Rendezvous rendezvous, CycleB b) {
+      constructions.incrementAndGet();
+      this.b = b;
+    }
+    public CycleA self() {
+      return this;
+    }
+    public CycleB b() {
+      return b;
+    }
+  }
+
+  @Singleton
+  static class CycleBImpl implements CycleB {
+    static final AtomicInteger constructions = new AtomicInteger();
+    final CycleA a;
+    @Inject CycleBImpl(Rendezvous rendezvous, CycleA a) {
+      constructions.incrementAndGet();
+      this.a = a;
+    }
+    public CycleB self() {
+      return this;
+    }
+    public CycleA a() {
+      return a;
+    }
+  }
+
   public void testOverriddingAnnotation() {
     Injector injector = Guice.createInjector(new AbstractModule() {
       protected void configure() {
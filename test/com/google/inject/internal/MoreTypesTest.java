@@ -98,6 +98,46 @@ public class MoreTypesTest extends TestCase {
         Types.supertypeOf(Set.class), TreeSet.class));
   }
 
+  public void testTypeSchemeMatcher() {
+    Type[] typeSchemes = {
+        String.class,
+        boolean[].class,
+        new TypeLiteral<List<?>[]>() {}.getType(),
+        Types.listOf(Types.subtypeOf(Object.class)),
+        Types.listOf(Types.subtypeOf(Collection.class)),
+        Types.listOf(Types.supertypeOf(Set.class)),
+        new TypeVariableImpl(),
+        new TypeVariableImpl(Serializable.class),
+        new TypeVariableImpl(Collection.class),
+        Types.subtypeOf(Collection.class),
+        Types.supertypeOf(Set.class),
+    };
+    Type[] types = {
+        String.class,
+        boolean[].class,
+        List.class,
+        TreeSet.class,
+        Serializable.class,
+        new TypeLiteral<List<Integer>[]>() {}.getType(),
+        Types.listOf(String.class),
+        Types.listOf(Boolean.class),
+        Types.listOf(Types.listOf(String.class)),
+        Types.listOf(Collection.class),
+        Types.setOf(String.class),
+    };
+
+    for (Type typeScheme : typeSchemes) {
+      TypeSchemeMatcher matcher = new TypeSchemeMatcher(typeScheme);
+      for (Type type : types) {
+        TypeLiteral<?> typeLiteral = TypeLiteral.get(type);
+        boolean expected = MoreTypes.isInstance(typeScheme, typeLiteral.getType());
+        // twice, so that memoized results are checked too
+        assertEquals(typeScheme + " " + type, expected, matcher.matches(typeLiteral));
+        assertEquals(typeScheme + " " + type, expected, matcher.matches(typeLiteral));
+      }
+    }
+  }
+
   public void testIsAssignableFrom() {
     // class
     assertTrue(MoreTypes.isAssignableFrom(String.class, String.class));
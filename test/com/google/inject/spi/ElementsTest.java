@@ -42,6 +42,7 @@ import com.google.inject.matcher.Matcher;
 import com.google.inject.matcher.Matchers;
 import com.google.inject.name.Named;
 import com.google.inject.name.Names;
+import com.google.inject.util.JitProviderMetrics;
 import com.google.inject.util.Providers;
 import java.lang.annotation.Annotation;
 import java.lang.annotation.ElementType;
@@ -685,6 +686,25 @@ public class ElementsTest extends TestCase {
     );
   }
 
+  public void testBindJitProviderListener() {
+    final JitProviderListener listener = new JitProviderMetrics();
+
+    checkModule(
+        new AbstractModule() {
+          protected void configure() {
+            bindListener(listener);
+          }
+        },
+
+        new FailingElementVisitor() {
+          @Override public Void visit(JitProviderListenerBinding binding) {
+            assertSame(listener, binding.getListener());
+            return null;
+          }
+        }
+    );
+  }
+
   public void testConvertToTypes() {
     final TypeConverter typeConverter = new TypeConverter() {
       public Object convert(String value, TypeLiteral<?> toType) {